@@ -20,14 +20,16 @@ import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 
 /**
- * A Yoddish translator, currently working only for English->Yoddish.
+ * A Yoddish translator, currently working only for English->Yoddish.<br/>
+ * The translator can be used by multiple threads at the same time, sharing
+ * its Stanford pipeline.
  */
 public class YoddishTranslator {
 
 	private static final Logger LOG = LogManager
 			.getLogger(YoddishTranslator.class);
 
-	private StanfordCoreNLP pipeline;
+	private final StanfordCoreNLP pipeline;
 
 	public YoddishTranslator() {
 		// creates a StanfordCoreNLP object, with POS tagging, lemmatization,
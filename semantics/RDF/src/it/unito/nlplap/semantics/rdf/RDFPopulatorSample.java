@@ -1,6 +1,7 @@
 package it.unito.nlplap.semantics.rdf;
 
-import it.unito.nlplap.semantics.utils.FeatureVectorUtils;
+import it.unito.nlplap.semantics.utils.TextProcessor;
+import it.unito.nlplap.semantics.utils.TextProcessor.StopWordsRemoval;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -22,6 +23,12 @@ public class RDFPopulatorSample {
 	public static final String DOCS_DIR = "data/news_collection";
 	public static final String RDF_FILE = "data/news_collection.rdf";
 
+	/**
+	 * The PoS of the summarization terms (only Nouns).
+	 */
+	public static final List<String> SUMMARIZING_POS = Arrays
+			.asList(new String[] { "NN", "NNS", "NNP", "NNPS"/*, "JJ", "JJR", "JJS"*/});
+
 	public static class DocFeatures {
 		private String uri, title, subject, description, date, creator,
 				publisher;
@@ -92,10 +99,13 @@ public class RDFPopulatorSample {
 		// Load docs
 		File[] docs = new File(DOCS_DIR).listFiles();
 
+		// Same text processor for all docs
+		TextProcessor processor = createSummarizingProcessor();
+
 		int anakinCreator = 2;
 		for (File doc : docs) {
 			// Extracting doc features
-			DocFeatures docFeatures = extractDocFeatures(doc);
+			DocFeatures docFeatures = extractDocFeatures(doc, processor);
 
 			if (anakinCreator > 0) {
 				docFeatures.setCreator("Anakin Skywalker");
@@ -119,6 +129,18 @@ public class RDFPopulatorSample {
 		model.write(new FileOutputStream(new File(RDF_FILE)));
 	}
 
+	/**
+	 * Creates the text processor extracting summarization terms (i.e. lemmas
+	 * filtered by {@link RDFPopulatorSample#SUMMARIZING_POS}).
+	 * 
+	 * @return
+	 * @throws Exception
+	 */
+	public static TextProcessor createSummarizingProcessor() throws Exception {
+		return new TextProcessor(Locale.ENGLISH, null, SUMMARIZING_POS,
+				StopWordsRemoval.LEMMAS, false, true);
+	}
+
 	/**
 	 * Extract documents features from file
 	 * @param doc
@@ -126,6 +148,20 @@ public class RDFPopulatorSample {
 	 * @throws Exception
 	 */
 	public static DocFeatures extractDocFeatures(File doc) throws Exception {
+		return extractDocFeatures(doc, createSummarizingProcessor());
+	}
+
+	/**
+	 * Extract documents features from file
+	 * @param doc
+	 * @param processor
+	 *            the text processor extracting summarization terms (see
+	 *            {@link RDFPopulatorSample#createSummarizingProcessor()}).
+	 * @return
+	 * @throws Exception
+	 */
+	public static DocFeatures extractDocFeatures(File doc,
+			TextProcessor processor) throws Exception {
 		DocFeatures docFeatures = new DocFeatures();
 
 		Scanner sc = new Scanner(doc);
@@ -154,9 +190,8 @@ public class RDFPopulatorSample {
 
 		// Extract summarization terms
 		// Get ordered lemmas from doc content, filtered by PoS (only Nouns)
-		Map<String, Integer> summarizingFeat = FeatureVectorUtils.getFeatureVector(
-				contentBuilder.toString(), Locale.ENGLISH,
-				Arrays.asList(new String[] { "NN", "NNS", "NNP", "NNPS"/*, "JJ", "JJR", "JJS"*/}));
+		Map<String, Integer> summarizingFeat = processor
+				.getFeatureVector(contentBuilder.toString());
 		//feat = Utils.sortByComparator(feat, true);
 
 		List<String> feats = new ArrayList<String>();
@@ -0,0 +1,197 @@
+package it.unito.nlplab.semantics.rocchio.benchmarks;
+
+import it.unito.nlplab.semantics.rocchio.RocchioClassificationBenchmark;
+import it.unito.nlplab.semantics.rocchio.RocchioClassifier;
+import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
+import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+import it.unito.nlplab.semantics.rocchio.utils.SparseVector;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of the {@link RocchioClassifier} hot paths (training,
+ * features computation, classification and Cosine Similarity), over the
+ * bundled corpora or a synthetic one of configurable size.<br/>
+ * Corpora are loaded (and lemmatized) once per trial, and split as in
+ * {@link RocchioClassificationBenchmark}.<br/>
+ * Build with <code>mvn package</code> and run with
+ * <code>java -jar target/benchmarks.jar -prof gc</code> to get allocation
+ * rates too.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RocchioBenchmark {
+
+	public static final String CORPUS_IT = "docs_200";
+	public static final String CORPUS_EN = "20_NGs_400";
+	public static final String CORPUS_SYNTHETIC = "synthetic";
+
+	/**
+	 * The corpus to use: one of the bundled ones (in
+	 * {@link RocchioBenchmark#dataDir}) or a synthetic one.
+	 */
+	@Param({ CORPUS_IT, CORPUS_EN, CORPUS_SYNTHETIC })
+	public String corpus;
+
+	@Param({ "../Rocchio/data" })
+	public String dataDir;
+
+	@Param({ "0" })
+	public double pruningThreshold;
+
+	@Param({ "2000" })
+	public int syntheticDocuments;
+
+	@Param({ "20" })
+	public int syntheticClasses;
+
+	@Param({ "20000" })
+	public int syntheticVocabulary;
+
+	@Param({ "150" })
+	public int syntheticDocumentTerms;
+
+	private Parallel parallel;
+	private RocchioOptions options;
+	private List<Document> trainingSet;
+	private List<Document> testSet;
+	private RocchioClassifier classifier;
+	private SparseVector[] classVectors;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		List<Document> dataSet;
+		if (CORPUS_SYNTHETIC.equals(corpus))
+			dataSet = createSyntheticCorpus(syntheticDocuments,
+					syntheticClasses, syntheticVocabulary,
+					syntheticDocumentTerms, 42);
+		else {
+			dataSet = RocchioClassificationBenchmark
+					.loadDocsInSubdirs(new File(dataDir, corpus));
+			RocchioClassificationBenchmark.loadDocsTerms(dataSet, CORPUS_IT
+					.equals(corpus) ? Locale.ITALIAN : Locale.ENGLISH, false);
+		}
+
+		// Split datasets
+		trainingSet = new ArrayList<Document>();
+		testSet = new ArrayList<Document>();
+		for (Map.Entry<String, List<Document>> dsClass : RocchioClassificationBenchmark
+				.datasetSplitInClasses(dataSet).entrySet())
+			RocchioClassificationBenchmark.datasetSplit(dsClass.getValue(),
+					0.10, trainingSet, testSet, false);
+
+		// Classifiers share a pool, so that threads are not created (and
+		// leaked) by each training
+		parallel = new Parallel(Runtime.getRuntime().availableProcessors());
+		options = new RocchioOptions();
+		options.setPruningThreshold(pruningThreshold);
+		options.setParallel(parallel);
+
+		classifier = new RocchioClassifier(trainingSet, options);
+		for (Document doc : testSet)
+			classifier.computeDocumentFeatures(doc);
+		classVectors = RocchioClassifier
+				.extractRocchioClasses(trainingSet,
+						classifier.getFeatureVector()).values()
+				.toArray(new SparseVector[0]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		classifier.close();
+		parallel.shutdown();
+	}
+
+	/**
+	 * Creates a corpus of documents with random terms. Each class draws terms
+	 * from a different region of the vocabulary, with a skewed (Zipf-like)
+	 * distribution.
+	 *
+	 * @param documents
+	 * @param classes
+	 * @param vocabulary
+	 * @param documentTerms
+	 *            the number of terms drawn for each document (duplicates are
+	 *            discarded).
+	 * @param seed
+	 * @return
+	 */
+	public static List<Document> createSyntheticCorpus(int documents,
+			int classes, int vocabulary, int documentTerms, long seed) {
+		Random random = new Random(seed);
+		List<Document> corpus = new ArrayList<Document>(documents);
+		for (int d = 0; d < documents; d++) {
+			int clazz = d % classes;
+			int offset = clazz * (vocabulary / classes);
+			HashSet<String> terms = new HashSet<String>();
+			for (int t = 0; t < documentTerms; t++) {
+				double r = random.nextDouble();
+				int term = (offset + (int) (vocabulary * r * r * r))
+						% vocabulary;
+				terms.add("term" + term);
+			}
+			corpus.add(new Document("doc" + d, "synthetic/doc" + d, "", terms,
+					"class" + clazz));
+		}
+		return corpus;
+	}
+
+	private Document nextDocument() {
+		next = (next + 1) % testSet.size();
+		return testSet.get(next);
+	}
+
+	@Benchmark
+	public RocchioClassifier train() {
+		RocchioClassifier trained = new RocchioClassifier(trainingSet, options);
+		trained.close();
+		return trained;
+	}
+
+	@Benchmark
+	public Document computeDocumentFeatures() {
+		return classifier.computeDocumentFeatures(nextDocument());
+	}
+
+	@Benchmark
+	public ClassificationResult classify() {
+		return classifier.classify(nextDocument());
+	}
+
+	@Benchmark
+	public double cosineSimilarity() {
+		Document doc = nextDocument();
+		return RocchioClassifier.cosineSimilarity(
+				doc.getCollectionTermWeight(), classVectors[next
+						% classVectors.length]);
+	}
+}
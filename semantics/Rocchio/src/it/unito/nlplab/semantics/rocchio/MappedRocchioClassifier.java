@@ -0,0 +1,132 @@
+package it.unito.nlplab.semantics.rocchio;
+
+import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplab.semantics.rocchio.utils.MappedRocchioModel;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+import it.unito.nlplab.semantics.rocchio.utils.SparseVector;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A read-only Rocchio document classifier, reading the term dictionary, IDF
+ * values and class weights directly from a memory-mapped model file (see
+ * {@link RocchioClassifier#save(File)}).<br/>
+ * Several processes can map the same model file sharing the operating system
+ * page cache, so that the model takes almost no heap in each of them.<br/>
+ * The model cannot be updated, and the inverted index option is ignored.
+ *
+ */
+public class MappedRocchioClassifier extends RocchioClassifier {
+
+	private static final Logger LOG = LogManager
+			.getLogger(MappedRocchioClassifier.class);
+
+	private final File file;
+	private final MappedRocchioModel model;
+
+	/**
+	 * Maps the given model file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public MappedRocchioClassifier(File file) throws IOException {
+		this(file, new RocchioOptions());
+	}
+
+	/**
+	 * Maps the given model file, with the given options (only parallelism is
+	 * used).
+	 * 
+	 * @param file
+	 * @param options
+	 * @throws IOException
+	 */
+	public MappedRocchioClassifier(File file, RocchioOptions options)
+			throws IOException {
+		super(options);
+
+		this.file = file;
+		this.model = new MappedRocchioModel(file);
+		this.statistics = null;
+		this.terms = model.getTerms();
+		this.classNames = model.getClassNames();
+		this.classNorms = model.getClassNorms();
+
+		LOG.info(String.format("Model mapped from '%s': terms=%d, classes=%d",
+				file, terms.size(), classNames.length));
+	}
+
+	/**
+	 * Does nothing, the model is read-only.
+	 */
+	@Override
+	public void materialize() {
+	}
+
+	@Override
+	public void addDocuments(Collection<Document> documents) {
+		throw new UnsupportedOperationException(
+				"A mapped model cannot be updated.");
+	}
+
+	@Override
+	public void removeDocuments(Collection<Document> documents) {
+		throw new UnsupportedOperationException(
+				"A mapped model cannot be updated.");
+	}
+
+	/**
+	 * Copies the mapped model file to the given file.
+	 */
+	@Override
+	public void save(File file) throws IOException {
+		Files.copy(this.file.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Compute document features, using the model IDF values if none are
+	 * given.
+	 */
+	@Override
+	protected Document computeFeatures(Document doc, double[] idf) {
+		if (idf != null)
+			return super.computeFeatures(doc, idf);
+
+		SparseVector tf = computeTermFrequencies(doc, null);
+		int[] weightIds = new int[tf.size()];
+		double[] weights = new double[tf.size()];
+		for (int i = 0; i < tf.size(); i++) {
+			weightIds[i] = tf.getIndex(i);
+			weights[i] = tf.getValue(i) * model.getIdf(tf.getIndex(i));
+		}
+		doc.setCollectionTermFrequency(tf);
+		doc.setCollectionTermWeight(new SparseVector(weightIds, weights));
+
+		return doc;
+	}
+
+	@Override
+	protected double[] score(Document document) {
+		SparseVector weights = document.getCollectionTermWeight();
+		double norm = weights.norm();
+
+		double[] scores = new double[classNames.length];
+		if (norm == 0)
+			return scores;
+
+		for (int c = 0; c < scores.length; c++)
+			scores[c] = classNorms[c] > 0 ? model.dot(weights, c)
+					/ (norm * classNorms[c]) : 0;
+
+		return scores;
+	}
+}
@@ -3,23 +3,34 @@ package it.unito.nlplab.semantics.rocchio;
 import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
 import it.unito.nlplab.semantics.rocchio.utils.Document;
 import it.unito.nlplab.semantics.rocchio.utils.Parallel;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel.IndexOperation;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+import it.unito.nlplab.semantics.rocchio.utils.TermCache;
 import it.unito.nlplab.semantics.wsd.Sense;
 import it.unito.nlplab.semantics.wsd.WSD;
 import it.unito.nlplab.semantics.wsd.WSD.StopWordException;
-import it.unito.nlplap.semantics.utils.FeatureVectorUtils;
+import it.unito.nlplap.semantics.utils.SharedPipelines;
 import it.unito.nlplap.semantics.utils.StopWordsTrimmer;
+import it.unito.nlplap.semantics.utils.TextProcessor;
 import it.unito.nlplap.semantics.utils.Utils;
+import it.unito.nlplap.semantics.utils.lemmatizer.LemmaCache;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Random;
 
 import org.apache.logging.log4j.LogManager;
@@ -42,12 +53,31 @@ public class RocchioClassificationBenchmark {
 	private static final Locale DOCUMENTS_LANGUAGE_IT = Locale.ITALIAN;
 	private static final String DOCUMENT_DIR_PATH_EN = "data/20_NGs_400";
 	private static final Locale DOCUMENTS_LANGUAGE_EN = Locale.ENGLISH;
+	/**
+	 * Folder to cache documents terms in, null to disable caching.
+	 */
+	private static final String TERM_CACHE_DIR_PATH = "cache";
+	/**
+	 * Version of terms extraction (i.e. tokenizer, stop words, lemmatizers),
+	 * part of the term cache configuration: increase it whenever extracted
+	 * terms change, so that cached ones are discarded.
+	 */
+	public static final int TERM_EXTRACTION_VERSION = 2;
+	/**
+	 * The maximum number of files read at the same time.
+	 */
+	private static final int LOADING_PARALLELISM = Runtime.getRuntime()
+			.availableProcessors();
 
 	public static void main(String[] args) throws Exception {
 
 		boolean ita = true;
 		boolean useWSD = false;
+		// Set to false to lemmatize English docs without PoS tagging (faster)
+		boolean posTagging = true;
 		boolean randomSplit = false;
+		// Set to more than 1 for a k-fold cross validation
+		int crossValidationFolds = 0;
 
 		String docDirPath;
 		Locale docLang;
@@ -66,7 +96,18 @@ public class RocchioClassificationBenchmark {
 		// Load docs (and extract features)
 		docDir = new File(docDirPath);
 		dataSet = loadDocsInSubdirs(docDir);
-		loadDocsTerms(dataSet, docLang, useWSD);
+		loadDocsTerms(dataSet, docLang, useWSD, posTagging,
+				TERM_CACHE_DIR_PATH != null ? new File(TERM_CACHE_DIR_PATH)
+						: null);
+
+		if (crossValidationFolds > 1) {
+			// Folds run in parallel, so each classifier runs on one thread
+			RocchioOptions options = new RocchioOptions();
+			options.setParallelism(1);
+			new RocchioCrossValidation(crossValidationFolds, options,
+					randomSplit).run(dataSet);
+			return;
+		}
 
 		double testsetRatio = 0.10;
 
@@ -88,14 +129,17 @@ public class RocchioClassificationBenchmark {
 		int wrongCount = 0;
 		// Count errors by class
 		Map<String, Map<String, Integer>> errorsByClass = new HashMap<String, Map<String, Integer>>();
-		for (Document doc : testSet) {
-			ClassificationResult cr = rc.classify(rc
-					.computeDocumentFeatures(doc));
-
-			LOG.info(String.format(
-					"Document '%s', correctClass=%s, bestClass=%s, score=%s",
-					doc.getName(), doc.getCategory(), cr.getBestClass(),
-					cr.getBestScore()));
+		List<ClassificationResult> results = rc.classifyAll(testSet, 3);
+		rc.close();
+		for (int i = 0; i < testSet.size(); i++) {
+			Document doc = testSet.get(i);
+			ClassificationResult cr = results.get(i);
+
+			LOG.info(String
+					.format("Document '%s', correctClass=%s, bestClass=%s, score=%s, ranking=%s",
+							doc.getName(), doc.getCategory(),
+							cr.getBestClass(), cr.getBestScore(),
+							cr.getRanking()));
 			if (doc.getCategory().equals(cr.getBestClass()))
 				correctCount++;
 			else {
@@ -144,6 +188,79 @@ public class RocchioClassificationBenchmark {
 		}
 	}
 
+	/**
+	 * Computes the text in the document dataset, extracting terms/features,
+	 * reusing the terms cached in the given folder (see {@link TermCache}) for
+	 * documents not modified since.
+	 * 
+	 * @param docs
+	 * @param language
+	 * @param useWSD
+	 *            if true terms are WSD, lemmas are used otherwise.
+	 * @param cacheDir
+	 *            the folder of the cache, null to disable it.
+	 * @throws Exception
+	 */
+	public static void loadDocsTerms(List<Document> docs, Locale language,
+			boolean useWSD, File cacheDir) throws Exception {
+		loadDocsTerms(docs, language, useWSD, true, cacheDir);
+	}
+
+	/**
+	 * Computes the text in the document dataset, extracting terms/features,
+	 * reusing the terms cached in the given folder (see {@link TermCache}) for
+	 * documents not modified since.
+	 * 
+	 * @param docs
+	 * @param language
+	 * @param useWSD
+	 *            if true terms are WSD, lemmas are used otherwise.
+	 * @param posTagging
+	 *            false to extract English lemmas without PoS tagging (ignored
+	 *            with WSD).
+	 * @param cacheDir
+	 *            the folder of the cache, null to disable it.
+	 * @throws Exception
+	 */
+	public static void loadDocsTerms(List<Document> docs, Locale language,
+			boolean useWSD, boolean posTagging, File cacheDir)
+			throws Exception {
+		if (cacheDir == null) {
+			loadDocsTerms(docs, language, useWSD, posTagging);
+			return;
+		}
+
+		// A cache for each configuration
+		boolean untagged = language != Locale.ITALIAN && !useWSD
+				&& !posTagging;
+		String cleaner = language == Locale.ITALIAN && !useWSD ? "MorphIt"
+				: untagged ? "Morphology" : "CoreNLP";
+		TermCache cache = new TermCache(new File(cacheDir, String.format(
+				"terms_%s_%s.bin", language, useWSD ? "wsd"
+						: untagged ? "untagged_lemmas" : "lemmas")),
+				String.format("version=%d, language=%s, cleaner=%s, wsd=%s",
+						TERM_EXTRACTION_VERSION, language, cleaner, useWSD));
+
+		List<Document> missing = new ArrayList<Document>();
+		for (Document doc : docs) {
+			HashSet<String> terms = cache.get(new File(doc.getPath()));
+			if (terms != null)
+				doc.setTerms(terms);
+			else
+				missing.add(doc);
+		}
+
+		LOG.info(String.format("Terms cached for %d/%d docs",
+				docs.size() - missing.size(), docs.size()));
+
+		if (!missing.isEmpty()) {
+			loadDocsTerms(missing, language, useWSD, posTagging);
+			for (Document doc : missing)
+				cache.put(new File(doc.getPath()), doc.getTerms());
+			cache.save();
+		}
+	}
+
 	/**
 	 * Computes the text in the document dataset, extracting terms/features.
 	 * 
@@ -155,8 +272,25 @@ public class RocchioClassificationBenchmark {
 	 */
 	public static void loadDocsTerms(List<Document> docs, Locale language,
 			boolean useWSD) throws Exception {
+		loadDocsTerms(docs, language, useWSD, true);
+	}
+
+	/**
+	 * Computes the text in the document dataset, extracting terms/features.
+	 * 
+	 * @param docs
+	 * @param language
+	 * @param useWSD
+	 *            if true terms are WSD, lemmas are used otherwise.
+	 * @param posTagging
+	 *            false to extract English lemmas without PoS tagging, which
+	 *            is much faster but may give different lemmas (ignored with
+	 *            WSD).
+	 * @throws Exception
+	 */
+	public static void loadDocsTerms(List<Document> docs, Locale language,
+			boolean useWSD, boolean posTagging) throws Exception {
 
-		HashSet<String> terms;
 		if (useWSD) {
 			// Use Sense from WSD as features
 
@@ -167,115 +301,119 @@ public class RocchioClassificationBenchmark {
 			final WSD wsd = new WSD(language);
 			final StopWordsTrimmer swt = new StopWordsTrimmer(language);
 
-			// Init Stanford Core NLP
-			Properties props = new Properties();
-			props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-			final StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
-			;
-
-			Parallel.For(docs,
-			// Extract features from Documents in parallel
-					new Parallel.Operation<Document>() {
-						public void perform(Document doc, int index, int total) {
-							try {
-								long startTime = System.currentTimeMillis();
-
-								HashSet<String> terms = new HashSet<String>();
-
-								// Run Stanford pipeline
-								Annotation document = new Annotation(doc
-										.getText());
-								pipeline.annotate(document);
-
-								List<CoreMap> sentences = document
-										.get(SentencesAnnotation.class);
-
-								// For each Sentence
-								for (CoreMap sentence : sentences) {
-
-									HashSet<String> context = new HashSet<String>();
-									for (CoreLabel token : sentence
-											.get(TokensAnnotation.class)) {
-
-										String lemma = token
-												.get(LemmaAnnotation.class);
-										if (lemma.length() > 0)
-											context.add(swt.normalizeWord(lemma
-													.toLowerCase()));
-									}
+			// Init Stanford Core NLP, shared by all the threads
+			final StanfordCoreNLP pipeline = SharedPipelines
+					.get(SharedPipelines.LEMMA_ANNOTATORS);
+
+			Parallel parallel = new Parallel(Runtime.getRuntime()
+					.availableProcessors());
+			try {
+				parallel.For(docs,
+				// Extract features from Documents in parallel
+						new Parallel.Operation<Document>() {
+							public void perform(Document doc, int index, int total) {
+								try {
+									long startTime = System.currentTimeMillis();
+
+									HashSet<String> terms = new HashSet<String>();
+
+									// Run Stanford pipeline
+									Annotation document = new Annotation(doc
+											.getText());
+									pipeline.annotate(document);
 
-									// Context, StopWords filter
-									context = new HashSet<String>(swt
-											.trim(context));
+									List<CoreMap> sentences = document
+											.get(SentencesAnnotation.class);
 
-									for (CoreLabel token : sentence
-											.get(TokensAnnotation.class)) {
+									// For each Sentence
+									for (CoreMap sentence : sentences) {
 
-										try {
+										HashSet<String> context = new HashSet<String>();
+										for (CoreLabel token : sentence
+												.get(TokensAnnotation.class)) {
 
 											String lemma = token
 													.get(LemmaAnnotation.class);
-											// token
-											// String pos =
-											// token.get(PartOfSpeechAnnotation.class);
-
-											// Word, StopWords filter
-											List<String> tmp = swt.trim(Arrays.asList(new String[] { swt
-													.normalizeWord(lemma
-															.toLowerCase()) }));
-
-											// Check empty word (stop words
-											// filtered)
-											if (tmp.size() < 1)
-												continue;
-											String cleanWord = tmp.iterator()
-													.next();
-
-											if (cleanWord.length() < 1)
-												continue;
-
-											// Get senses with WSD
-											Sense s = wsd.getBestSense(
-													cleanWord, context, null);
-
-											if (s != null)
-												terms.add("<" + s.getId() + ":"
-														+ s.getLemma() + ">");
-											else
-												terms.add("<NA:" + cleanWord
-														+ ">");
-										} catch (StopWordException e) {
-											// Skip this word as a stop word
+											if (lemma.length() > 0)
+												context.add(swt.normalizeWord(lemma
+														.toLowerCase()));
 										}
-									}
 
-								}
+										// Context, StopWords filter
+										context = new HashSet<String>(swt
+												.trim(context));
+
+										for (CoreLabel token : sentence
+												.get(TokensAnnotation.class)) {
+
+											try {
+
+												String lemma = token
+														.get(LemmaAnnotation.class);
+												// token
+												// String pos =
+												// token.get(PartOfSpeechAnnotation.class);
+
+												// Word, StopWords filter
+												String cleanWord = swt
+														.normalizeWord(lemma
+																.toLowerCase());
+
+												// Check empty word or stop word
+												if (cleanWord.length() < 1
+														|| swt.isStopWord(cleanWord))
+													continue;
+
+												// Get senses with WSD
+												Sense s = wsd.getBestSense(
+														cleanWord, context, null);
+
+												if (s != null)
+													terms.add("<" + s.getId() + ":"
+															+ s.getLemma() + ">");
+												else
+													terms.add("<NA:" + cleanWord
+															+ ">");
+											} catch (StopWordException e) {
+												// Skip this word as a stop word
+											}
+										}
 
-								doc.setTerms(terms);
-
-								LOG.info(String
-										.format("Loaded terms of doc %d, title '%s' (time: %s ms)",
-												index,
-												doc.getName(),
-												(System.currentTimeMillis() - startTime)));
-							} catch (Exception e) {
-								LOG.error(e);
-								throw new RuntimeException(e);
-							}
-						};
-					});
-		} else {
-			// Use lemmas as features
-			int i = 0;
-			for (Document doc : docs) {
-				terms = new HashSet<String>(FeatureVectorUtils.getLemmas(
-						doc.getText(), language));
+									}
 
-				LOG.info(String.format("Loading terms of doc %d, title '%s'",
-						++i, doc.getName()));
+									doc.setTerms(terms);
 
-				doc.setTerms(terms);
+									LOG.info(String
+											.format("Loaded terms of doc %d/%d, title '%s' (time: %s ms)",
+													index + 1, total,
+													doc.getName(),
+													(System.currentTimeMillis() - startTime)));
+								} catch (Exception e) {
+									LOG.error(e);
+									throw new RuntimeException(e);
+								}
+							};
+						});
+			} finally {
+				parallel.shutdown();
 			}
+		} else {
+			// Use lemmas as features, annotating documents in batches
+			List<String> texts = new ArrayList<String>(docs.size());
+			for (Document doc : docs)
+				texts.add(doc.getText());
+
+			long startTime = System.currentTimeMillis();
+			List<List<String>> lemmas = TextProcessor
+					.getShared(language, posTagging).getLemmas(texts,
+							Runtime.getRuntime().availableProcessors());
+			for (int i = 0; i < docs.size(); i++)
+				docs.get(i).setTerms(new HashSet<String>(lemmas.get(i)));
+
+			LOG.info(String.format(
+					"Loaded terms of %d docs (time: %s ms, lemma cache: %s)",
+					docs.size(), (System.currentTimeMillis() - startTime),
+					LemmaCache.getShared().getStats()));
 		}
 	}
 
@@ -326,6 +464,40 @@ public class RocchioClassificationBenchmark {
 		public C getClassificationClass();
 	}
 
+	/**
+	 * Splits the dataset in the given number of folds, stratified by class
+	 * (i.e. documents of each class are evenly distributed among the folds).
+	 * 
+	 * @param dataSet
+	 * @param folds
+	 * @param random
+	 *            true if documents are assigned to folds randomly, false to
+	 *            assign them in order.
+	 * @return
+	 */
+	public static <C, T extends ClassificationClassAware<C>> List<List<T>> datasetSplitInFolds(
+			List<T> dataSet, int folds, boolean random) {
+		List<List<T>> foldSets = new ArrayList<List<T>>();
+		for (int f = 0; f < folds; f++)
+			foldSets.add(new ArrayList<T>());
+
+		Random r = new Random(System.currentTimeMillis());
+		int fold = 0;
+		for (List<T> clazz : datasetSplitInClasses(dataSet).values()) {
+			List<T> items = new ArrayList<T>(clazz);
+			if (random)
+				Collections.shuffle(items, r);
+
+			// Continue from the last fold, to balance fold sizes
+			for (T item : items) {
+				foldSets.get(fold).add(item);
+				fold = (fold + 1) % folds;
+			}
+		}
+
+		return foldSets;
+	}
+
 	public static <C, T extends ClassificationClassAware<C>> Map<C, List<T>> datasetSplitInClasses(
 			List<T> dataSet) {
 		Map<C, List<T>> classes = new LinkedHashMap<C, List<T>>();
@@ -355,28 +527,29 @@ public class RocchioClassificationBenchmark {
 		LOG.info(String.format("Loading docs from folder '%s'",
 				docDir.getAbsolutePath()));
 
-		List<Document> documents = new ArrayList<Document>();
+		List<Path> files = new ArrayList<Path>();
+		List<String> categories = new ArrayList<String>();
 
 		int limit = -200;
-		for (File file : docDir.listFiles()) {
+		for (Path file : listFiles(docDir.toPath())) {
 			if (limit > 10)
 				break;
 
-			if (file.isFile() && file.getName().indexOf(".") != 0
-					&& file.length() > 0) {
+			if (Files.isRegularFile(file)
+					&& file.getFileName().toString().indexOf(".") != 0
+					&& Files.size(file) > 0) {
 				limit++;
 				String category = null;
 				try {
-					category = file.getName().split("_")[0];
+					category = file.getFileName().toString().split("_")[0];
 				} catch (Exception ex) {
 				}
-				String text = Utils.fileToText(file);
-				documents.add(new Document(file.getName(), file
-						.getAbsolutePath(), text, null, category));
+				files.add(file);
+				categories.add(category);
 			}
 		}
 
-		return documents;
+		return readDocs(files, categories, LOADING_PARALLELISM);
 	}
 
 	/**
@@ -389,36 +562,139 @@ public class RocchioClassificationBenchmark {
 	 */
 	public static List<Document> loadDocsInSubdirs(File docDir)
 			throws Exception {
+		return loadDocsInSubdirs(docDir, LOADING_PARALLELISM);
+	}
+
+	/**
+	 * Load documents from the given folder, expecting to find N subfolders, one
+	 * for each category.<br/>
+	 * Files are read concurrently, and documents are returned sorted by
+	 * category and file name.
+	 * 
+	 * @param docDir
+	 * @param parallelism
+	 *            the maximum number of files read at the same time.
+	 * @return
+	 * @throws Exception
+	 */
+	public static List<Document> loadDocsInSubdirs(File docDir,
+			int parallelism) throws Exception {
 		LOG.info(String.format("Loading docs from folder '%s'",
 				docDir.getAbsolutePath()));
 
-		List<Document> documents = new ArrayList<Document>();
-
-		// int limit = 100;
-		int i = 0;
-		for (File dir : docDir.listFiles()) {
-
-			if (dir.isDirectory()) {
-				String category = dir.getName();
+		List<Path> files = new ArrayList<Path>();
+		List<String> categories = new ArrayList<String>();
+		for (Path dir : listFiles(docDir.toPath())) {
+			if (Files.isDirectory(dir)) {
+				String category = dir.getFileName().toString();
+
+				for (Path file : listFiles(dir)) {
+					if (Files.isRegularFile(file)
+							&& file.getFileName().toString().indexOf(".") != 0) {
+						files.add(file);
+						categories.add(category);
+					}
+				}
+			}
+		}
 
-				for (File file : dir.listFiles()) {
-					if (file.isFile() && file.getName().indexOf(".") != 0
-					/* && file.length() > 0 */) {
-						// if (--limit < 0)
-						// break;
-						i++;
+		return readDocs(files, categories, parallelism);
+	}
 
-						String text = Utils.fileToText(file);
-						documents.add(new Document(file.getName(), file
-								.getAbsolutePath(), text, null, category));
+	/**
+	 * Returns the entries of the given folder, sorted by name.
+	 * 
+	 * @param dir
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<Path> listFiles(Path dir) throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+		try {
+			for (Path file : stream)
+				files.add(file);
+		} finally {
+			stream.close();
+		}
+		Collections.sort(files);
+		return files;
+	}
 
-						LOG.debug(String.format("Loading doc %d, title '%s'",
-								i, file.getName()));
+	/**
+	 * Reads the given files in parallel, creating a document for each of them
+	 * (in the same order).
+	 * 
+	 * @param files
+	 * @param categories
+	 *            the category of each file.
+	 * @param parallelism
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<Document> readDocs(final List<Path> files,
+			final List<String> categories, int parallelism) throws IOException {
+		final Document[] documents = new Document[files.size()];
+
+		Parallel parallel = new Parallel(parallelism);
+		try {
+			parallel.For(files.size(), new IndexOperation() {
+				@Override
+				public void perform(int index) {
+					Path file = files.get(index);
+					try {
+						documents[index] = new Document(file.getFileName()
+								.toString(), file.toAbsolutePath().toString(),
+								fileToText(file), null, categories.get(index));
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
 					}
+
+					LOG.debug(String.format("Loading doc %d, title '%s'",
+							index + 1, file.getFileName()));
 				}
-			}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			parallel.shutdown();
+		}
+
+		// Mutable, as callers may split or shuffle it
+		return new ArrayList<Document>(Arrays.asList(documents));
+	}
+
+	/**
+	 * Reads the text of the given file (in the platform default charset),
+	 * with lines separated by a space as in {@link Utils#fileToText(File)}.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static String fileToText(Path file) throws IOException {
+		String content = new String(Files.readAllBytes(file),
+				Charset.defaultCharset());
+
+		StringBuilder text = new StringBuilder(content.length() + 1);
+		boolean separator = false;
+		for (int i = 0; i < content.length(); i++) {
+			char c = content.charAt(i);
+			separator = c == '\r' || c == '\n' || c == '\u2028'
+					|| c == '\u2029' || c == '\u0085';
+			if (separator) {
+				text.append(' ');
+				// A CR LF pair is a single line separator
+				if (c == '\r' && i + 1 < content.length()
+						&& content.charAt(i + 1) == '\n')
+					i++;
+			} else
+				text.append(c);
 		}
+		// The last line is always followed by a separator
+		if (content.length() > 0 && !separator)
+			text.append(' ');
 
-		return documents;
+		return text.toString();
 	}
 }
\ No newline at end of file
@@ -66,6 +66,8 @@ public class RocchioClassificationSample {
 			limit++;
 		}
 
+		rocchio.close();
+
 		LOG.info(String.format(
 				"Total docs=%d, Correctly classified=%d, Badly classified=%d",
 				documents.size(), correctCount, wrongCount));
@@ -1,31 +1,106 @@
 package it.unito.nlplab.semantics.rocchio;
 
+import it.unito.nlplab.semantics.rocchio.utils.ClassScore;
 import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
 import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplab.semantics.rocchio.utils.FeatureHasher;
+import it.unito.nlplab.semantics.rocchio.utils.FeatureSelection;
+import it.unito.nlplab.semantics.rocchio.utils.InvertedIndex;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel.IndexOperation;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioModelFile;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioStatistics;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioStatistics.ClassStatistics;
+import it.unito.nlplab.semantics.rocchio.utils.SparseVector;
+import it.unito.nlplab.semantics.rocchio.utils.TermDictionary;
 import it.unito.nlplap.semantics.utils.MutableDouble;
 import it.unito.nlplap.semantics.utils.MutableInt;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A Rocchio document classifier implementation.
+ * A Rocchio document classifier implementation.<br/>
+ * The model can be updated incrementally (see
+ * {@link RocchioClassifier#addDocuments(Collection)} and
+ * {@link RocchioClassifier#removeDocuments(Collection)}): training statistics
+ * are updated right away, while IDF values and class weights are computed
+ * again only when needed.<br/>
+ * A trained model can be saved to a file and loaded later, without the
+ * training documents (see {@link RocchioClassifier#save(File)}), or mapped
+ * read-only (see {@link MappedRocchioClassifier}).<br/>
+ * Terms can be hashed into a fixed number of features instead of being
+ * stored in a dictionary (see {@link RocchioOptions#setHashingWidth(int)}),
+ * but such models cannot be saved.<br/>
+ * Parallel operations run on a pool owned by the classifier, which should be
+ * closed when no longer needed (see {@link RocchioClassifier#close()}).
  *
  */
-public class RocchioClassifier {
+public class RocchioClassifier implements AutoCloseable {
 
 	private static final Logger LOG = LogManager
 			.getLogger(RocchioClassifier.class);
 
-	Map<String, MutableInt> terms = new HashMap<String, MutableInt>();
-	Map<String, MutableInt> featureVector = new HashMap<String, MutableInt>();
-	Map<String, MutableDouble> idf = new HashMap<String, MutableDouble>();
-	Map<String, Map<String, MutableDouble>> rocchioClasses;
+	/**
+	 * Number of documents classified together by the streaming batch
+	 * classification.
+	 */
+	public static final int STREAMING_BATCH_SIZE = 1000;
+
+	RocchioOptions options;
+	private Parallel parallel;
+
+	TermDictionary terms = new TermDictionary();
+	/**
+	 * Maps terms to features in place of the dictionary, if hashing is
+	 * enabled.
+	 */
+	FeatureHasher hasher;
+	RocchioStatistics statistics = new RocchioStatistics();
+	double[] idf;
+	/**
+	 * Ids of the terms used as features (i.e. not pruned).
+	 */
+	BitSet vocabulary;
+	Map<String, SparseVector> rocchioClasses;
+
+	/**
+	 * Rocchio classes in indexed form, with norms precomputed at training time
+	 * (see {@link RocchioClassifier#indexClasses()}).
+	 */
+	String[] classNames;
+	SparseVector[] classVectors;
+	double[] classNorms;
+	InvertedIndex invertedIndex;
+
+	/**
+	 * Guards the model: updates acquire the write lock, classification the
+	 * read one.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/**
+	 * True if the statistics changed after the model has been computed.
+	 */
+	private volatile boolean dirty;
 
 	/**
 	 * Initialize the Rocchio document classifier, with the input training set.
@@ -41,83 +116,533 @@ public class RocchioClassifier {
 	 */
 	public RocchioClassifier(List<Document> trainingDocuments,
 			double pruningThreshold) {
+		this(trainingDocuments, createOptions(pruningThreshold));
+	}
+
+	/**
+	 * Initialize the Rocchio document classifier, with the input training set
+	 * and the given options.
+	 * 
+	 * @param trainingDocuments
+	 *            documents for training (see
+	 *            {@link RocchioClassifier#RocchioClassifier(List, double)}).
+	 * @param options
+	 */
+	public RocchioClassifier(List<Document> trainingDocuments,
+			RocchioOptions options) {
+		this.options = options;
+		if (options.getHashingWidth() > 0)
+			this.hasher = new FeatureHasher(options.getHashingWidth());
+
 		// Train the classificator
-		train(trainingDocuments, pruningThreshold);
+		train(trainingDocuments, options);
 	}
 
-	protected void train(List<Document> documents, double pruningThreshold) {
+	protected RocchioClassifier(RocchioOptions options) {
+		this.options = options;
+	}
+
+	private static RocchioOptions createOptions(double pruningThreshold) {
+		RocchioOptions options = new RocchioOptions();
+		options.setPruningThreshold(pruningThreshold);
+		return options;
+	}
 
+	protected void train(final List<Document> documents,
+			RocchioOptions options) {
 		LOG.info("Training in progress...");
 
 		int documentCount = documents.size();
 
 		LOG.info(String.format("Training: Total docs=%d", documentCount));
-		// Extract collection terms (feature vector) - union
-		// Calculate terms IDF
+		if (hasher == null) {
+			// Extract collection terms (feature vector) - union
+			// Count terms document frequency
+			Map<String, MutableDouble> df = countDocumentFrequencies(
+					documents, options.getParallelism());
+			for (Map.Entry<String, MutableDouble> term : df.entrySet())
+				statistics.incrementDocumentFrequency(
+						terms.add(term.getKey()), (int) term.getValue()
+								.getValue());
+		}
+		statistics.incrementDocumentCount(documentCount);
+
+		// Extract classes POSITIVES from documents
+		Map<String, List<Document>> classesPOS = new HashMap<String, List<Document>>();
 		for (Document doc : documents) {
-			for (Map.Entry<String, MutableInt> term : doc.getTermCount()
+			List<Document> pos = classesPOS.get(doc.getCategory());
+			if (pos == null) {
+				pos = new ArrayList<Document>();
+				classesPOS.put(doc.getCategory(), pos);
+			}
+			pos.add(doc);
+		}
+		final List<List<Document>> positives = new ArrayList<List<Document>>(
+				classesPOS.values());
+		final ClassStatistics[] classStatistics = new ClassStatistics[positives
+				.size()];
+		for (int c = 0; c < positives.size(); c++)
+			classStatistics[c] = statistics.getClassStatistics(positives.get(c)
+					.get(0).getCategory());
+
+		LOG.info("Training: Computing classes statistics...");
+		// For each class, sum POSITIVES Term-Frequency (in parallel)
+		getParallel().For(positives.size(), new IndexOperation() {
+			@Override
+			public void perform(int c) {
+				for (Document doc : positives.get(c))
+					classStatistics[c].add(
+							computeTermFrequencies(doc, null), 1);
+			}
+		});
+
+		// With hashing, features document frequency is known only now
+		if (hasher != null)
+			for (ClassStatistics clazz : classStatistics)
+				for (int t = 0; t < hasher.getWidth(); t++)
+					statistics.incrementDocumentFrequency(t,
+							clazz.getDocumentFrequency(t));
+
+		// Compute IDF and Rocchio classes
+		materialize();
+
+		LOG.info("Training: Computing documents features...");
+		// For each document, extract term frequency (in parallel)
+		getParallel().For(documentCount, new IndexOperation() {
+			@Override
+			public void perform(int index) {
+				Document doc = documents.get(index);
+				if (LOG.isDebugEnabled())
+					LOG.debug(String
+							.format("Training: Extracting features of document '%s' - %d/%d",
+									doc.getName(), index + 1,
+									documents.size()));
+
+				computeFeatures(doc, idf);
+			}
+		});
+
+		LOG.info("Training complete");
+	}
+
+	/**
+	 * Computes the model (i.e. IDF values, pruned terms and Rocchio classes)
+	 * from the current training statistics, if they changed since the last
+	 * time.<br/>
+	 * It is invoked automatically when needed (i.e. before classifying a
+	 * document after updates).
+	 */
+	public void materialize() {
+		lock.writeLock().lock();
+		try {
+			if (rocchioClasses != null && !dirty)
+				return;
+
+			double pruningThreshold = options.getPruningThreshold();
+			int termCount = getTermCount();
+			int documentCount = statistics.getDocumentCount();
+			int minDocumentFrequency = options.getMinDocumentFrequency();
+			double maxDocumentFrequency = options.getMaxDocumentFrequency()
+					* documentCount;
+
+			// Calculate terms IDF
+			// PRUNING !
+			// Only relevant terms (i.e. idf > pruningThreshold, and document
+			// frequency within bounds)
+			idf = new double[termCount];
+			vocabulary = new BitSet(termCount);
+			for (int t = 0; t < termCount; t++) {
+				double df = statistics.getDocumentFrequency(t);
+				if (df <= 0)
+					continue;
+
+				idf[t] = Math.log(documentCount / df);
+				if (idf[t] >= pruningThreshold && df >= minDocumentFrequency
+						&& df <= maxDocumentFrequency)
+					vocabulary.set(t);
+			}
+
+			// Keep the best terms of each class
+			if (options.getFeatureSelection() != FeatureSelection.NONE
+					&& options.getFeaturesPerClass() > 0)
+				vocabulary = selectClassFeatures(vocabulary,
+						options.getFeatureSelection(),
+						options.getFeaturesPerClass());
+
+			// Keep the most frequent terms
+			if (options.getMaxVocabularySize() > 0
+					&& vocabulary.cardinality() > options
+							.getMaxVocabularySize()) {
+				double[] df = new double[termCount];
+				for (int t = 0; t < termCount; t++)
+					df[t] = statistics.getDocumentFrequency(t);
+				vocabulary = selectTopTerms(vocabulary, df,
+						options.getMaxVocabularySize());
+			}
+
+			for (int t = 0; t < termCount; t++)
+				if (!vocabulary.get(t))
+					idf[t] = 0;
+			if (LOG.isDebugEnabled())
+				LOG.debug(String.format(
+						"Training: Total IDF='%d', idf=[%s]",
+						termCount,
+						it.unito.nlplap.semantics.utils.Utils.sortByComparator(
+								toMap(SparseVector.fromDense(idf)), true)));
+
+			LOG.debug(String.format("Training: Total terms='%d'",
+					vocabulary.cardinality()));
+
+			// Extract Rocchio classes
+			LOG.info("Training: Computing classes");
+
+			rocchioClasses = computeRocchioClasses(getParallel());
+			for (Map.Entry<String, SparseVector> clazz : rocchioClasses
 					.entrySet()) {
-				if (!idf.containsKey(term.getKey()))
-					idf.put(term.getKey(), new MutableDouble(1));
-				else
-					idf.get(term.getKey()).increment();
+				if (LOG.isDebugEnabled())
+					LOG.debug(String.format(
+							"Rocchio Class '%s' features=[%s]",
+							clazz.getKey(),
+							trimLog(it.unito.nlplap.semantics.utils.Utils
+									.sortByComparator(toMap(clazz.getValue()),
+											true), 256)));
+				LOG.info(String.format(
+						"Training: extracted Rocchio class '%s'",
+						clazz.getKey()));
 			}
+			LOG.info(String.format("Training: Total classes=%d",
+					rocchioClasses.size()));
+
+			indexClasses();
+			invertedIndex = null;
+			if (options.isInvertedIndex()) {
+				LOG.info("Training: Building inverted index");
+				invertedIndex = new InvertedIndex(classVectors, termCount);
+			}
+
+			dirty = false;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		for (Map.Entry<String, MutableDouble> term : idf.entrySet()) {
-			term.getValue().setValue(
-					Math.log(documentCount / term.getValue().getValue()));
+	}
+
+	/**
+	 * Selects the best terms of each class, by the given score.
+	 * 
+	 * @param candidates
+	 *            the ids of the terms to select from.
+	 * @param featureSelection
+	 * @param featuresPerClass
+	 * @return the union of the terms selected for each class.
+	 */
+	protected BitSet selectClassFeatures(final BitSet candidates,
+			final FeatureSelection featureSelection, final int featuresPerClass) {
+		final ClassStatistics[] classStatistics = statistics.getClasses()
+				.values().toArray(new ClassStatistics[0]);
+		final int documentCount = statistics.getDocumentCount();
+		final BitSet[] selected = new BitSet[classStatistics.length];
+
+		// For each class, score terms (in parallel)
+		getParallel().For(classStatistics.length, new IndexOperation() {
+			@Override
+			public void perform(int c) {
+				ClassStatistics clazz = classStatistics[c];
+				double[] scores = new double[getTermCount()];
+				for (int t = candidates.nextSetBit(0); t >= 0; t = candidates
+						.nextSetBit(t + 1)) {
+					double a = clazz.getDocumentFrequency(t);
+					double b = statistics.getDocumentFrequency(t) - a;
+					double cc = clazz.getDocumentCount() - a;
+					double d = documentCount - clazz.getDocumentCount() - b;
+					scores[t] = featureSelection.score(a, b, cc, d);
+				}
+				selected[c] = selectTopTerms(candidates, scores,
+						featuresPerClass);
+			}
+		});
+
+		BitSet union = new BitSet(getTermCount());
+		for (BitSet classTerms : selected)
+			union.or(classTerms);
+
+		LOG.info(String.format(
+				"Training: Selected %d/%d terms by %s (%d per class)",
+				union.cardinality(), candidates.cardinality(),
+				featureSelection, featuresPerClass));
+
+		return union;
+	}
+
+	/**
+	 * Selects the terms with the highest scores.
+	 * 
+	 * @param candidates
+	 *            the ids of the terms to select from.
+	 * @param scores
+	 *            scores indexed by term id.
+	 * @param count
+	 *            the number of terms to select.
+	 * @return
+	 */
+	protected static BitSet selectTopTerms(BitSet candidates,
+			final double[] scores, int count) {
+		// Keep the top terms (the worst of them on top of the heap)
+		PriorityQueue<Integer> top = new PriorityQueue<Integer>(count + 1,
+				new Comparator<Integer>() {
+					@Override
+					public int compare(Integer t1, Integer t2) {
+						int result = Double.compare(scores[t1], scores[t2]);
+						// Prefer lower ids on ties
+						return result != 0 ? result : t2.compareTo(t1);
+					}
+				});
+		for (int t = candidates.nextSetBit(0); t >= 0; t = candidates
+				.nextSetBit(t + 1)) {
+			top.add(t);
+			if (top.size() > count)
+				top.poll();
 		}
-		if (LOG.isDebugEnabled())
-			LOG.debug(String.format("Training: Total IDF='%d', idf=[%s]", idf
-					.size(), it.unito.nlplap.semantics.utils.Utils
-					.sortByComparator(idf, true)));
-
-		// PRUNING !
-		// Extract collection terms (feature vector)
-		// Only relevant terms (i.e. idf > pruningThreshold)
-		for (Map.Entry<String, MutableDouble> term : idf.entrySet()) {
-			if (term.getValue().getValue() >= pruningThreshold)
-				terms.put(term.getKey(), new MutableInt(0));
+
+		BitSet selected = new BitSet(candidates.length());
+		for (int t : top)
+			selected.set(t);
+		return selected;
+	}
+
+	/**
+	 * Returns the number of features (i.e. terms in the dictionary, or hash
+	 * buckets).
+	 * 
+	 * @return
+	 */
+	protected int getTermCount() {
+		return hasher != null ? hasher.getWidth() : terms.size();
+	}
+
+	/**
+	 * Returns the given vector as a Map of Term,Value (i.e. for debug
+	 * purposes). With hashing, terms are replaced by their feature index.
+	 * 
+	 * @param vector
+	 * @return
+	 */
+	protected Map<String, Double> toMap(SparseVector vector) {
+		if (hasher == null)
+			return vector.toMap(terms);
+
+		Map<String, Double> map = new HashMap<String, Double>();
+		for (int i = 0; i < vector.size(); i++)
+			map.put("#" + vector.getIndex(i), vector.getValue(i));
+		return map;
+	}
+
+	private void ensureMaterialized() {
+		if (dirty)
+			materialize();
+	}
+
+	/**
+	 * Adds the given documents to the training set, updating the training
+	 * statistics. The model will be computed again when needed (see
+	 * {@link RocchioClassifier#materialize()}).<br/>
+	 * <b>Note</b> that features of documents computed before the update
+	 * (including the training ones) are not updated.
+	 * 
+	 * @param documents
+	 *            documents for training (see
+	 *            {@link RocchioClassifier#RocchioClassifier(List, double)}).
+	 */
+	public void addDocuments(Collection<Document> documents) {
+		lock.writeLock().lock();
+		try {
+			checkStatistics();
+			for (Document doc : documents) {
+				if (hasher == null)
+					for (String term : doc.getTermCount().keySet())
+						terms.add(term);
+				statistics.add(doc.getCategory(),
+						computeTermFrequencies(doc, null));
+			}
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		featureVector = it.unito.nlplap.semantics.utils.Utils.clone(terms);
 
-		LOG.debug(String.format("Training: Total terms='%d', terms=[%s]",
-				terms.size(), terms));
+		LOG.info(String.format("Added %d documents to the training set",
+				documents.size()));
+	}
 
-		LOG.info("Training: Computing documents features...");
-		// For each document, extract term frequency
-		int i = 0;
-		for (Document doc : documents) {
-			i++;
-			LOG.info(String
-					.format("Training: Extracting features of document '%s' - %d/%d - %d %%",
-							doc.getName(), i, documentCount,
-							(int) (i * 100 / documentCount)));
+	/**
+	 * Removes the given documents from the training set, updating the
+	 * training statistics. The model will be computed again when needed (see
+	 * {@link RocchioClassifier#materialize()}).
+	 * 
+	 * @param documents
+	 *            documents previously used for training, with the same
+	 *            category and terms.
+	 * @throws IllegalArgumentException
+	 *             if a document category is unknown, or if some documents
+	 *             cannot have been used for training (see
+	 *             {@link RocchioStatistics#removeAll(List, List)}). The
+	 *             training set is left unchanged.
+	 */
+	public void removeDocuments(Collection<Document> documents) {
+		lock.writeLock().lock();
+		try {
+			checkStatistics();
+			List<String> categories = new ArrayList<String>(documents.size());
+			List<SparseVector> termFrequencies = new ArrayList<SparseVector>(
+					documents.size());
+			for (Document doc : documents) {
+				categories.add(doc.getCategory());
+				termFrequencies.add(computeTermFrequencies(doc, null));
+			}
+			statistics.removeAll(categories, termFrequencies);
+			dirty = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		LOG.info(String.format(
+				"Removed %d documents from the training set",
+				documents.size()));
+	}
+
+	private void checkStatistics() {
+		if (statistics == null)
+			throw new IllegalStateException(
+					"The model has been loaded from file, training statistics are not available.");
+	}
+
+	/**
+	 * Saves the trained model (i.e. term dictionary, IDF values and Rocchio
+	 * classes) to the given file (see {@link RocchioModelFile}).<br/>
+	 * Training statistics are not saved, hence the loaded model cannot be
+	 * updated.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 * @throws IllegalStateException
+	 *             if features are hashed (see
+	 *             {@link RocchioOptions#setHashingWidth(int)}), since the
+	 *             file format stores the terms.
+	 */
+	public void save(File file) throws IOException {
+		if (hasher != null)
+			throw new IllegalStateException(
+					"Models with hashed features cannot be saved.");
 
-			doc = computeDocumentFeatures(doc, idf);
+		ensureMaterialized();
+		lock.readLock().lock();
+		try {
+			RocchioModelFile.save(file, terms, vocabulary, idf, classNames,
+					classVectors, classNorms);
+		} finally {
+			lock.readLock().unlock();
 		}
 
-		// Extract Rocchio classes
-		LOG.info("Training: Computing classes");
+		LOG.info(String.format("Model saved to '%s'", file));
+	}
 
-		rocchioClasses = RocchioClassifier.extractRocchioClasses(documents,
-				terms);
-		for (Map.Entry<String, Map<String, MutableDouble>> clazz : rocchioClasses
-				.entrySet()) {
-			if (LOG.isDebugEnabled())
-				LOG.debug(String
-						.format("Rocchio Class '%s' features=[%s]",
-								clazz.getKey(),
-								trimLog(it.unito.nlplap.semantics.utils.Utils
-										.sortByComparator(clazz.getValue(),
-												true), 256)));
-			LOG.info(String.format("Training: extracted Rocchio class '%s'",
-					clazz.getKey()));
+	/**
+	 * Loads a model saved with {@link RocchioClassifier#save(File)}.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static RocchioClassifier load(File file) throws IOException {
+		return load(file, new RocchioOptions());
+	}
+
+	/**
+	 * Loads a model saved with {@link RocchioClassifier#save(File)}, with the
+	 * given options (pruning ones are ignored).
+	 * 
+	 * @param file
+	 * @param options
+	 * @return
+	 * @throws IOException
+	 */
+	public static RocchioClassifier load(File file, RocchioOptions options)
+			throws IOException {
+		RocchioModelFile model = RocchioModelFile.load(file);
+
+		RocchioClassifier rc = new RocchioClassifier(options);
+		rc.statistics = null;
+		rc.terms = model.getTerms();
+		rc.idf = model.getIdf();
+		rc.vocabulary = new BitSet(rc.terms.size());
+		rc.vocabulary.set(0, rc.terms.size());
+		rc.classNames = model.getClassNames();
+		rc.classVectors = model.getClassVectors();
+		rc.classNorms = model.getClassNorms();
+		rc.rocchioClasses = new HashMap<String, SparseVector>();
+		for (int c = 0; c < rc.classNames.length; c++)
+			rc.rocchioClasses.put(rc.classNames[c], rc.classVectors[c]);
+		if (options.isInvertedIndex())
+			rc.invertedIndex = new InvertedIndex(rc.classVectors,
+					rc.terms.size());
+
+		LOG.info(String.format("Model loaded from '%s': terms=%d, classes=%d",
+				file, rc.terms.size(), rc.classNames.length));
+
+		return rc;
+	}
+
+	/**
+	 * Counts the document frequency of each term. Documents are split in
+	 * partitions, counted in parallel, and then partial counts are merged.
+	 * 
+	 * @param documents
+	 * @param partitions
+	 * @return a Map of Term,DocumentFrequency
+	 */
+	protected Map<String, MutableDouble> countDocumentFrequencies(
+			final List<Document> documents, int partitions) {
+		partitions = Math.max(1, Math.min(partitions, documents.size()));
+		final int partitionSize = (documents.size() + partitions - 1)
+				/ partitions;
+		// Filled by index, each partition setting its own element
+		final List<Map<String, MutableDouble>> partials = new ArrayList<Map<String, MutableDouble>>(
+				Collections.<Map<String, MutableDouble>> nCopies(partitions,
+						null));
+
+		getParallel().For(partitions, new IndexOperation() {
+			@Override
+			public void perform(int index) {
+				Map<String, MutableDouble> df = new HashMap<String, MutableDouble>();
+				int to = Math.min(documents.size(), (index + 1)
+						* partitionSize);
+				for (int i = index * partitionSize; i < to; i++) {
+					for (String term : documents.get(i).getTermCount()
+							.keySet()) {
+						MutableDouble count = df.get(term);
+						if (count == null)
+							df.put(term, new MutableDouble(1));
+						else
+							count.increment();
+					}
+				}
+				partials.set(index, df);
+			}
+		});
+
+		// Merge partial counts
+		Map<String, MutableDouble> df = partials.get(0);
+		for (int p = 1; p < partials.size(); p++) {
+			for (Map.Entry<String, MutableDouble> term : partials.get(p)
+					.entrySet()) {
+				MutableDouble count = df.get(term.getKey());
+				if (count == null)
+					df.put(term.getKey(), term.getValue());
+				else
+					count.setValue(count.getValue()
+							+ term.getValue().getValue());
+			}
 		}
-		LOG.info(String.format("Training: Total classes=%d",
-				rocchioClasses.size()));
 
-		LOG.info("Training complete");
+		return df;
 	}
 
 	/**
@@ -127,30 +652,92 @@ public class RocchioClassifier {
 	 * @return
 	 */
 	public Document computeDocumentFeatures(Document doc) {
-		return computeDocumentFeatures(doc, idf);
+		ensureMaterialized();
+		lock.readLock().lock();
+		try {
+			return computeFeatures(doc, idf);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	public Document computeDocumentFeatures(Document doc,
-			Map<String, MutableDouble> idf) {
-		doc.setCollectionTermCount(it.unito.nlplap.semantics.utils.Utils
-				.clone(terms));
+	/**
+	 * Compute document features, using the given IDF values.
+	 * 
+	 * @param doc
+	 * @param idf
+	 *            IDF values indexed by term id, or null to compute Term
+	 *            Frequency only.
+	 * @return
+	 */
+	public Document computeDocumentFeatures(Document doc, double[] idf) {
+		ensureMaterialized();
+		lock.readLock().lock();
+		try {
+			return computeFeatures(doc, idf);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
 
-		// Term Count
-		doc.getCollectionTermCount().putAll(doc.getTermCount());
+	/**
+	 * Returns the Term-Frequency of the given document terms.
+	 * 
+	 * @param doc
+	 * @param vocabulary
+	 *            the ids of the terms to consider, or null to consider all
+	 *            the terms in the dictionary.
+	 * @return
+	 */
+	protected SparseVector computeTermFrequencies(Document doc,
+			BitSet vocabulary) {
+		if (hasher != null)
+			return computeHashedTermFrequencies(doc, vocabulary);
+
+		// Term Count (only collection terms)
+		int[] ids = new int[doc.getTermCount().size()];
+		double[] values = new double[ids.length];
+		int size = 0;
+		for (Map.Entry<String, MutableInt> term : doc.getTermCount()
+				.entrySet()) {
+			int id = terms.getId(term.getKey());
+			if (id < 0 || (vocabulary != null && !vocabulary.get(id)))
+				continue;
+			ids[size] = id;
+			values[size] = term.getValue().getValue();
+			size++;
+		}
 
 		// Term frequency
-		for (Map.Entry<String, MutableInt> term : terms.entrySet()) {
-			double value = 0;
-			if (doc.getTerms().size() > 0)
-				value = ((double) doc.getCollectionTermCount()
-						.get(term.getKey()).getValue())
-						/ doc.getTerms().size();
-			doc.getCollectionTermFrequency().put(term.getKey(),
-					new MutableDouble(value));
+		for (int i = 0; i < size; i++)
+			values[i] = values[i] / doc.getTerms().size();
+
+		return SparseVector.create(ids, values, size);
+	}
+
+	private SparseVector computeHashedTermFrequencies(Document doc,
+			BitSet vocabulary) {
+		// Signed term count of each feature
+		SparseVector count = hasher.transform(doc.getTerms());
+
+		int[] ids = new int[count.size()];
+		double[] values = new double[ids.length];
+		int size = 0;
+		for (int i = 0; i < count.size(); i++) {
+			if (vocabulary != null && !vocabulary.get(count.getIndex(i)))
+				continue;
+			ids[size] = count.getIndex(i);
+			// Term frequency
+			values[size] = count.getValue(i) / doc.getTerms().size();
+			size++;
 		}
 
-		doc.setCollectionTermWeight(it.unito.nlplap.semantics.utils.Utils
-				.clone(doc.getCollectionTermFrequency()));
+		return new SparseVector(Arrays.copyOf(ids, size), Arrays.copyOf(
+				values, size));
+	}
+
+	protected Document computeFeatures(Document doc, double[] idf) {
+		doc.setCollectionTermFrequency(computeTermFrequencies(doc, vocabulary));
 
 		// Doc features debug infos
 		if (LOG.isDebugEnabled()) {
@@ -163,37 +750,45 @@ public class RocchioClassifier {
 					"Document '%s' termFrequency=[%s]",
 					doc.getName(),
 					trimLog(it.unito.nlplap.semantics.utils.Utils
-							.sortByComparator(doc.getCollectionTermFrequency(),
+							.sortByComparator(
+									toMap(doc.getCollectionTermFrequency()),
 									true), 256)));
 		}
 
 		// Compute TF-IDF if IDF is available
+		SparseVector tf = doc.getCollectionTermFrequency();
 		if (idf != null) {
-			for (Map.Entry<String, MutableDouble> term : doc
-					.getCollectionTermWeight().entrySet())
-				term.getValue().setValue(
-						term.getValue().getValue()
-								* idf.get(term.getKey()).getValue());
-		}
+			int[] weightIds = new int[tf.size()];
+			double[] weights = new double[tf.size()];
+			for (int i = 0; i < tf.size(); i++) {
+				weightIds[i] = tf.getIndex(i);
+				weights[i] = tf.getValue(i) * idf[tf.getIndex(i)];
+			}
+			doc.setCollectionTermWeight(new SparseVector(weightIds, weights));
+		} else
+			doc.setCollectionTermWeight(tf);
 
 		if (LOG.isDebugEnabled())
 			LOG.debug(String.format(
 					"Document '%s' termWeight=[%s]",
 					doc.getName(),
 					trimLog(it.unito.nlplap.semantics.utils.Utils
-							.sortByComparator(doc.getCollectionTermWeight(),
+							.sortByComparator(
+									toMap(doc.getCollectionTermWeight()),
 									true), 256)));
 
 		return doc;
 	}
 
 	/**
-	 * Returns the feature vector for the current classifier training data.
+	 * Returns the feature vector (i.e. the collection terms) for the current
+	 * classifier training data. <b>Note</b> that it contains also the pruned
+	 * terms, and that it is empty if hashing is enabled.
 	 * 
 	 * @return
 	 */
-	public Map<String, MutableInt> getFeatureVector() {
-		return featureVector;
+	public TermDictionary getFeatureVector() {
+		return terms;
 	}
 
 	/**
@@ -206,17 +801,23 @@ public class RocchioClassifier {
 	 * @return
 	 */
 	public ClassificationResult classify(Document document) {
-		// Score each Rocchio class and choose the max score
+		ensureMaterialized();
+		lock.readLock().lock();
+		try {
+			return toResult(score(document));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private ClassificationResult toResult(double[] scores) {
+		// Choose the max score
 		double bestScore = 0;
 		String bestClass = null;
-		for (Map.Entry<String, Map<String, MutableDouble>> clazz : rocchioClasses
-				.entrySet()) {
-			// Score = Cosine Similarity
-			double score = RocchioClassifier.cosineSimilarity(
-					document.getCollectionTermWeight(), clazz.getValue());
-			if (score > bestScore) {
-				bestScore = score;
-				bestClass = clazz.getKey();
+		for (int c = 0; c < scores.length; c++) {
+			if (scores[c] > bestScore) {
+				bestScore = scores[c];
+				bestClass = classNames[c];
 			}
 		}
 
@@ -224,121 +825,394 @@ public class RocchioClassifier {
 	}
 
 	/**
-	 * Returns the Cosine Similarity score for a pair of feature vectors.
-	 * @param wd in the form of a Map of Feature,Value
-	 * @param wq
+	 * Classifies a given {@link Document}, returning the
+	 * {@link ClassificationResult} along with the ranking of the top scoring
+	 * classes (see {@link ClassificationResult#getRanking()}).
+	 * 
+	 * @param document
+	 *            a document to classify; MUST be already computed, see
+	 *            {@link RocchioClassifier#computeDocumentFeatures(Document)} .
+	 * @param topK
+	 *            the maximum number of classes in the ranking. Set to 0 to
+	 *            rank all the classes.
 	 * @return
 	 */
-	public static double cosineSimilarity(Map<String, MutableDouble> wd,
-			Map<String, MutableDouble> wq) {
-		if (wd.size() != wq.size())
-			throw new IllegalArgumentException(
-					"Vectors must contain the same elements.");
-
-		double sum = 0;
-		for (Map.Entry<String, MutableDouble> d : wd.entrySet()) {
-			sum += d.getValue().getValue() * wq.get(d.getKey()).getValue();
+	public ClassificationResult classify(Document document, int topK) {
+		ensureMaterialized();
+		lock.readLock().lock();
+		try {
+			return toResult(score(document), topK);
+		} finally {
+			lock.readLock().unlock();
 		}
+	}
+
+	private ClassificationResult toResult(final double[] scores, int topK) {
+		if (topK <= 0 || topK > scores.length)
+			topK = scores.length;
 
-		double wd2 = 0;
-		for (Map.Entry<String, MutableDouble> d : wd.entrySet()) {
-			wd2 += Math.pow(d.getValue().getValue(), 2);
+		// Higher scores first, ties in class order (i.e. the best class is the
+		// same chosen by toResult(double[]))
+		Comparator<Integer> order = new Comparator<Integer>() {
+			@Override
+			public int compare(Integer c1, Integer c2) {
+				int result = Double.compare(scores[c2], scores[c1]);
+				return result != 0 ? result : Integer.compare(c1, c2);
+			}
+		};
+
+		// Keep the top K classes (the worst of them on top of the heap)
+		PriorityQueue<Integer> top = new PriorityQueue<Integer>(topK + 1,
+				Collections.reverseOrder(order));
+		for (int c = 0; c < scores.length; c++) {
+			top.add(c);
+			if (top.size() > topK)
+				top.poll();
 		}
-		wd2 = Math.sqrt(wd2);
+		List<Integer> classes = new ArrayList<Integer>(top);
+		Collections.sort(classes, order);
+		List<ClassScore> ranking = new ArrayList<ClassScore>(classes.size());
+		for (int c : classes)
+			ranking.add(new ClassScore(classNames[c], scores[c]));
+
+		if (ranking.isEmpty() || !(ranking.get(0).getScore() > 0))
+			return new ClassificationResult(null, 0, ranking);
+
+		return new ClassificationResult(ranking.get(0).getClazz(), ranking
+				.get(0).getScore(), ranking);
+	}
+
+	/**
+	 * Computes features and classifies all the given documents, in parallel
+	 * (see {@link RocchioOptions#setParallelism(int)}).
+	 * 
+	 * @param documents
+	 * @return the results, in the same order of the documents.
+	 */
+	public List<ClassificationResult> classifyAll(
+			Collection<Document> documents) {
+		return classifyAll(documents, 1);
+	}
 
-		double wq2 = 0;
-		for (Map.Entry<String, MutableDouble> q : wq.entrySet()) {
-			wq2 += Math.pow(q.getValue().getValue(), 2);
+	/**
+	 * Computes features and classifies all the given documents, in parallel
+	 * (see {@link RocchioOptions#setParallelism(int)}).
+	 * 
+	 * @param documents
+	 * @param topK
+	 *            the maximum number of classes in the ranking of each result
+	 *            (see {@link RocchioClassifier#classify(Document, int)}).
+	 * @return the results, in the same order of the documents.
+	 */
+	public List<ClassificationResult> classifyAll(
+			Collection<Document> documents, final int topK) {
+		final List<Document> docs = new ArrayList<Document>(documents);
+		final ClassificationResult[] results = new ClassificationResult[docs
+				.size()];
+
+		ensureMaterialized();
+		// Workers MUST NOT acquire the lock, it is held here
+		lock.readLock().lock();
+		try {
+			getParallel().For(docs.size(), new IndexOperation() {
+				@Override
+				public void perform(int index) {
+					results[index] = toResult(
+							score(computeFeatures(docs.get(index), idf)), topK);
+				}
+			});
+		} finally {
+			lock.readLock().unlock();
 		}
-		wq2 = Math.sqrt(wq2);
 
-		return sum / (wd2 * wq2);
+		return Arrays.asList(results);
 	}
 
 	/**
-	 * Computes Rocchio classification classes based on given documents and their features
+	 * Computes features and classifies the given documents as they are
+	 * iterated. Documents are read and classified in parallel in batches of
+	 * {@link RocchioClassifier#STREAMING_BATCH_SIZE}, so that only a batch is
+	 * held in memory at a time.
+	 * 
 	 * @param documents
-	 * @param featuresInt
+	 * @param topK
+	 *            the maximum number of classes in the ranking of each result
+	 *            (see {@link RocchioClassifier#classify(Document, int)}).
+	 * @return the results, in the same order of the documents.
+	 */
+	public Iterator<ClassificationResult> classifyAll(
+			final Iterator<Document> documents, final int topK) {
+		return new Iterator<ClassificationResult>() {
+			private Iterator<ClassificationResult> batch = Collections
+					.<ClassificationResult> emptyList().iterator();
+
+			@Override
+			public boolean hasNext() {
+				if (batch.hasNext())
+					return true;
+				if (!documents.hasNext())
+					return false;
+
+				// Classify next batch
+				List<Document> docs = new ArrayList<Document>();
+				while (documents.hasNext()
+						&& docs.size() < STREAMING_BATCH_SIZE)
+					docs.add(documents.next());
+				batch = classifyAll(docs, topK).iterator();
+
+				return true;
+			}
+
+			@Override
+			public ClassificationResult next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				return batch.next();
+			}
+		};
+	}
+
+	private synchronized Parallel getParallel() {
+		if (options.getParallel() != null)
+			return options.getParallel();
+		if (parallel == null)
+			parallel = new Parallel(options.getParallelism());
+		return parallel;
+	}
+
+	/**
+	 * Shuts down the pool of the parallel operations, if created by the
+	 * classifier (see {@link RocchioOptions#setParallel(Parallel)}). Running
+	 * operations are completed, while a new pool is created if the classifier
+	 * is used again.
+	 */
+	@Override
+	public synchronized void close() {
+		if (parallel != null) {
+			parallel.shutdown();
+			parallel = null;
+		}
+	}
+
+	/**
+	 * Returns the score (i.e. Cosine Similarity) of each Rocchio class for the
+	 * given document, in the order of {@link RocchioClassifier#classNames}.
+	 * 
+	 * @param document
 	 * @return
 	 */
-	public static Map<String, Map<String, MutableDouble>> extractRocchioClasses(
-			List<Document> documents, Map<String, MutableInt> featuresInt) {
-		Map<String, Map<String, MutableDouble>> classes = new HashMap<String, Map<String, MutableDouble>>();
-		Map<String, List<Document>> classesPOS = new HashMap<String, List<Document>>();
-		Map<String, List<Document>> classesNEG = new HashMap<String, List<Document>>();
+	protected double[] score(Document document) {
+		SparseVector weights = document.getCollectionTermWeight();
+		double norm = weights.norm();
+
+		if (norm == 0)
+			return new double[classVectors.length];
+
+		// Dot products with each class (all at once if indexed)
+		double[] scores;
+		if (invertedIndex != null)
+			scores = invertedIndex.dot(weights);
+		else {
+			scores = new double[classVectors.length];
+			for (int c = 0; c < classVectors.length; c++)
+				scores[c] = weights.dot(classVectors[c]);
+		}
+
+		for (int c = 0; c < scores.length; c++)
+			scores[c] = classNorms[c] > 0 ? scores[c] / (norm * classNorms[c])
+					: 0;
+
+		return scores;
+	}
 
-		Map<String, MutableDouble> features = new HashMap<String, MutableDouble>();
-		for (Map.Entry<String, MutableInt> feature : featuresInt.entrySet()) {
-			features.put(feature.getKey(), new MutableDouble(feature.getValue()
-					.getValue()));
+	/**
+	 * Stores the Rocchio classes in indexed form, precomputing their norms.
+	 */
+	protected void indexClasses() {
+		classNames = new String[rocchioClasses.size()];
+		classVectors = new SparseVector[rocchioClasses.size()];
+		classNorms = new double[rocchioClasses.size()];
+
+		int c = 0;
+		for (Map.Entry<String, SparseVector> clazz : rocchioClasses.entrySet()) {
+			classNames[c] = clazz.getKey();
+			classVectors[c] = clazz.getValue();
+			classNorms[c] = clazz.getValue().norm();
+			c++;
 		}
+	}
+
+	/**
+	 * Returns the Cosine Similarity score for a pair of feature vectors.
+	 * @param wd
+	 * @param wq
+	 * @return
+	 */
+	public static double cosineSimilarity(SparseVector wd, SparseVector wq) {
+		return wd.dot(wq) / (wd.norm() * wq.norm());
+	}
+
+	/**
+	 * Computes Rocchio classification classes based on given documents and their features
+	 * @param documents
+	 * @param features
+	 * @return
+	 */
+	public static Map<String, SparseVector> extractRocchioClasses(
+			List<Document> documents, TermDictionary features) {
+		return extractRocchioClasses(documents, features, new Parallel(
+				ForkJoinPool.commonPool()));
+	}
 
-		// Extract empty classes from documents
+	/**
+	 * Computes Rocchio classification classes based on given documents and
+	 * their features, in a single pass over the documents: the features of
+	 * each class POSITIVES are summed (classes in parallel), while NEGATIVES
+	 * are derived from the total sum.
+	 * 
+	 * @param documents
+	 * @param features
+	 * @param parallel
+	 *            to compute classes in parallel with.
+	 * @return
+	 */
+	protected static Map<String, SparseVector> extractRocchioClasses(
+			List<Document> documents, final TermDictionary features,
+			Parallel parallel) {
+		// Extract classes POSITIVES from documents
+		Map<String, List<Document>> classesPOS = new HashMap<String, List<Document>>();
 		for (Document doc : documents) {
-			if (classes.get(doc.getCategory()) == null) {
-				// Initialize class
-				classes.put(doc.getCategory(),
-						it.unito.nlplap.semantics.utils.Utils.clone(features));
-				List<Document> pos = new ArrayList<Document>();
-				pos.add(doc);
+			List<Document> pos = classesPOS.get(doc.getCategory());
+			if (pos == null) {
+				pos = new ArrayList<Document>();
 				classesPOS.put(doc.getCategory(), pos);
-
-				classesNEG.put(doc.getCategory(), new ArrayList<Document>());
-			} else {
-				// Add document to class POSITIVES
-				classesPOS.get(doc.getCategory()).add(doc);
 			}
+			pos.add(doc);
 		}
+		final String[] classNames = classesPOS.keySet().toArray(
+				new String[classesPOS.size()]);
+		final List<List<Document>> positives = new ArrayList<List<Document>>(
+				classNames.length);
+		for (String className : classNames)
+			positives.add(classesPOS.get(className));
+		final int documentCount = documents.size();
 
-		// For each class, extract class NEGATIVES
-		for (Map.Entry<String, Map<String, MutableDouble>> clazz : classes
-				.entrySet()) {
-			List<Document> neg = classesNEG.get(clazz.getKey());
+		// For each class, sum POSITIVES features
+		final SparseVector[] sums = new SparseVector[classNames.length];
+		parallel.For(classNames.length, new IndexOperation() {
+			@Override
+			public void perform(int c) {
+				double[] sum = new double[features.size()];
+				for (Document doc : positives.get(c))
+					doc.getCollectionTermWeight().addTo(sum);
+				sums[c] = SparseVector.fromDense(sum);
+			}
+		});
 
-			for (Document doc : documents) {
-				if (!doc.getCategory().equals(clazz.getKey()))
-					neg.add(doc);
+		// Sum of all documents features
+		final double[] total = new double[features.size()];
+		for (SparseVector sum : sums)
+			sum.addTo(total);
+
+		// For each class, extract features values
+		final SparseVector[] vectors = new SparseVector[classNames.length];
+		parallel.For(classNames.length, new IndexOperation() {
+			@Override
+			public void perform(int c) {
+				double[] sum = new double[features.size()];
+				sums[c].addTo(sum);
+				vectors[c] = computeClassVector(sum, total,
+						positives.get(c).size(), documentCount);
 			}
+		});
+
+		Map<String, SparseVector> classes = new HashMap<String, SparseVector>();
+		for (int c = 0; c < classNames.length; c++)
+			classes.put(classNames[c], vectors[c]);
+
+		return classes;
+	}
+
+	/**
+	 * Computes Rocchio classification classes based on the current training
+	 * statistics and IDF values (classes in parallel).
+	 * 
+	 * @param parallel
+	 * @return
+	 */
+	protected Map<String, SparseVector> computeRocchioClasses(Parallel parallel) {
+		final String[] classNames = statistics.getClasses().keySet()
+				.toArray(new String[statistics.getClasses().size()]);
+		final ClassStatistics[] classStatistics = new ClassStatistics[classNames.length];
+		for (int c = 0; c < classNames.length; c++)
+			classStatistics[c] = statistics.getClasses().get(classNames[c]);
+		final int documentCount = statistics.getDocumentCount();
+		final int termCount = getTermCount();
 
+		// Sum of all documents Term-Frequency
+		final double[] totalTF = new double[termCount];
+		for (ClassStatistics clazz : classStatistics) {
+			double[] sums = clazz.getTermFrequencySums();
+			for (int t = 0; t < Math.min(sums.length, termCount); t++)
+				totalTF[t] += sums[t];
 		}
 
-		double beta = 16;
-		double gamma = 4;
+		// Sum of all documents features (i.e. TF-IDF)
+		final double[] total = new double[termCount];
+		for (int t = vocabulary.nextSetBit(0); t >= 0; t = vocabulary
+				.nextSetBit(t + 1))
+			total[t] = totalTF[t] * idf[t];
 
 		// For each class, extract features values
-		for (Map.Entry<String, Map<String, MutableDouble>> clazz : classes
-				.entrySet()) {
+		final SparseVector[] vectors = new SparseVector[classNames.length];
+		parallel.For(classNames.length, new IndexOperation() {
+			@Override
+			public void perform(int c) {
+				double[] sums = classStatistics[c].getTermFrequencySums();
+				double[] sum = new double[termCount];
+				for (int t = vocabulary.nextSetBit(0); t >= 0
+						&& t < sums.length; t = vocabulary.nextSetBit(t + 1))
+					sum[t] = sums[t] * idf[t];
+				vectors[c] = computeClassVector(sum, total,
+						classStatistics[c].getDocumentCount(), documentCount);
+			}
+		});
 
-			// For each feature
-			for (Map.Entry<String, MutableDouble> feature : clazz.getValue()
-					.entrySet()) {
+		Map<String, SparseVector> classes = new HashMap<String, SparseVector>();
+		for (int c = 0; c < classNames.length; c++)
+			classes.put(classNames[c], vectors[c]);
 
-				// For each POS
-				double pos = 0;
-				int posSize = classesPOS.get(clazz.getKey()).size();
-				for (Document doc : classesPOS.get(clazz.getKey())) {
-					pos += doc.getCollectionTermWeight().get(feature.getKey())
-							.getValue()
-							/ posSize;
-				}
-				pos = pos * beta;
-
-				// For each NEG
-				double neg = 0;
-				int negSize = classesNEG.get(clazz.getKey()).size();
-				for (Document doc : classesNEG.get(clazz.getKey())) {
-					pos += doc.getCollectionTermWeight().get(feature.getKey())
-							.getValue()
-							/ negSize;
-				}
-				neg = neg * gamma;
+		return classes;
+	}
 
-				feature.getValue().setValue(pos - neg);
-			}
+	/**
+	 * Computes a class vector from the sums of its POSITIVES features and of
+	 * all the documents features.
+	 * 
+	 * @param sum
+	 *            sum of the POSITIVES features; it is overwritten.
+	 * @param total
+	 *            sum of all documents features.
+	 * @param posSize
+	 *            number of POSITIVES documents.
+	 * @param documentCount
+	 *            number of all documents.
+	 * @return
+	 */
+	protected static SparseVector computeClassVector(double[] sum,
+			double[] total, int posSize, int documentCount) {
+		double beta = 16;
+		int negSize = documentCount - posSize;
 
+		// For each feature: POSITIVES mean (weighted by beta), plus
+		// NEGATIVES mean (i.e. from total sum minus POSITIVES)
+		for (int t = 0; t < sum.length; t++) {
+			double pos = sum[t] / posSize * beta;
+			double neg = negSize > 0 ? (total[t] - sum[t]) / negSize : 0;
+			sum[t] = pos + neg;
 		}
 
-		return classes;
+		return SparseVector.fromDense(sum);
 	}
 
 	/**
@@ -0,0 +1,179 @@
+package it.unito.nlplab.semantics.rocchio;
+
+import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
+import it.unito.nlplab.semantics.rocchio.utils.ConfusionMatrix;
+import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplab.semantics.rocchio.utils.FoldResult;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel;
+import it.unito.nlplab.semantics.rocchio.utils.Parallel.IndexOperation;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A stratified k-fold cross validation of the {@link RocchioClassifier}:
+ * documents of each class are split evenly in k folds, and each fold is
+ * classified by a classifier trained on the other ones.<br/>
+ * Folds are trained and classified in parallel, on copies of the documents
+ * (see {@link Document#Document(Document)}), so that terms are extracted
+ * only once.
+ *
+ */
+public class RocchioCrossValidation {
+
+	private static final Logger LOG = LogManager
+			.getLogger(RocchioCrossValidation.class);
+
+	private int folds;
+	private RocchioOptions options;
+	private boolean random;
+
+	/**
+	 * @param folds
+	 *            the number of folds (at least 2).
+	 * @param options
+	 *            options of the fold classifiers. Since folds are already run
+	 *            in parallel, a low parallelism is advisable.
+	 * @param random
+	 *            true to assign documents to folds randomly, false to assign
+	 *            them in order.
+	 */
+	public RocchioCrossValidation(int folds, RocchioOptions options,
+			boolean random) {
+		if (folds < 2)
+			throw new IllegalArgumentException(
+					"Cross validation requires at least 2 folds.");
+
+		this.folds = folds;
+		this.options = options;
+		this.random = random;
+	}
+
+	/**
+	 * Runs the cross validation on the given documents, logging the results.
+	 * 
+	 * @param dataSet
+	 *            documents with correct category and terms.
+	 * @return the result of each fold.
+	 */
+	public List<FoldResult> run(List<Document> dataSet) {
+		final List<List<Document>> foldSets = RocchioClassificationBenchmark
+				.datasetSplitInFolds(dataSet, folds, random);
+		final FoldResult[] results = new FoldResult[folds];
+
+		LOG.info(String.format("Cross validation: %d folds, total docs=%d",
+				folds, dataSet.size()));
+
+		Parallel parallel = new Parallel(Math.min(folds, Runtime.getRuntime()
+				.availableProcessors()));
+		try {
+			parallel.For(folds, new IndexOperation() {
+				@Override
+				public void perform(int index) {
+					results[index] = runFold(index, foldSets);
+					// Results are logged in fold order once all are done
+					LOG.debug(String.format("Cross validation: fold %d done",
+							index + 1));
+				}
+			});
+		} finally {
+			parallel.shutdown();
+		}
+
+		logResults(Arrays.asList(results));
+
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Trains a classifier on all the folds but the given one, and classifies
+	 * the given one.
+	 * 
+	 * @param fold
+	 * @param foldSets
+	 * @return
+	 */
+	protected FoldResult runFold(int fold, List<List<Document>> foldSets) {
+		List<Document> trainingSet = new ArrayList<Document>();
+		List<Document> testSet = new ArrayList<Document>();
+		for (int f = 0; f < foldSets.size(); f++)
+			for (Document doc : foldSets.get(f))
+				(f == fold ? testSet : trainingSet).add(new Document(doc));
+
+		long start = System.currentTimeMillis();
+		RocchioClassifier rc = new RocchioClassifier(trainingSet, options);
+		long trained = System.currentTimeMillis();
+		List<ClassificationResult> results;
+		try {
+			results = rc.classifyAll(testSet);
+		} finally {
+			rc.close();
+		}
+		long classified = System.currentTimeMillis();
+
+		ConfusionMatrix confusionMatrix = new ConfusionMatrix();
+		for (int i = 0; i < testSet.size(); i++)
+			confusionMatrix.add(testSet.get(i).getCategory(), results.get(i)
+					.getBestClass());
+
+		return new FoldResult(fold, trainingSet.size(), confusionMatrix,
+				trained - start, classified - trained);
+	}
+
+	/**
+	 * Logs per-class precision and recall and the confusion matrix of each
+	 * fold, then accuracy (mean and standard deviation over the folds),
+	 * per-class precision and recall and the overall confusion matrix.
+	 * 
+	 * @param results
+	 */
+	public static void logResults(List<FoldResult> results) {
+		for (FoldResult result : results) {
+			LOG.info(result);
+			logConfusionMatrix(result.getConfusionMatrix());
+		}
+
+		ConfusionMatrix total = new ConfusionMatrix();
+		double sum = 0, squaresSum = 0;
+		long trainingTime = 0, classificationTime = 0;
+		for (FoldResult result : results) {
+			double accuracy = result.getConfusionMatrix().getAccuracy();
+			sum += accuracy;
+			squaresSum += accuracy * accuracy;
+			trainingTime += result.getTrainingTime();
+			classificationTime += result.getClassificationTime();
+			total.addAll(result.getConfusionMatrix());
+		}
+		int n = results.size();
+		double mean = sum / n;
+		double deviation = Math.sqrt(Math.max(0, squaresSum / n - mean
+				* mean));
+
+		LOG.info(String
+				.format("Cross validation: accuracy=%.4f (+/- %.4f), correctly classified=%d/%d, mean trainingTime=%dms, mean classificationTime=%dms",
+						mean, deviation, total.getCorrect(), total.getTotal(),
+						trainingTime / n, classificationTime / n));
+
+		logConfusionMatrix(total);
+	}
+
+	/**
+	 * Logs per-class precision and recall and the given confusion matrix.
+	 * 
+	 * @param confusionMatrix
+	 */
+	private static void logConfusionMatrix(ConfusionMatrix confusionMatrix) {
+		for (String clazz : confusionMatrix.getClasses())
+			LOG.info(String.format("Class [%s]\tprecision=%.4f\trecall=%.4f",
+					clazz, confusionMatrix.getPrecision(clazz),
+					confusionMatrix.getRecall(clazz)));
+
+		LOG.info("Confusion matrix (rows: correct class, columns: assigned class):\n"
+				+ confusionMatrix);
+	}
+}
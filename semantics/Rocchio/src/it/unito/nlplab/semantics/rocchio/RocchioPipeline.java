@@ -0,0 +1,419 @@
+package it.unito.nlplab.semantics.rocchio;
+
+import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
+import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplap.semantics.utils.TextProcessor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A streaming classification pipeline: documents are read from files,
+ * their terms extracted (i.e. cleaning and lemmatization), features computed
+ * and classified by a trained {@link RocchioClassifier}, and finally passed
+ * to a {@link Sink}.<br/>
+ * Stages are connected by bounded buffers, so that a slower stage blocks the
+ * previous ones (i.e. backpressure), and documents are released once passed
+ * to the sink: a corpus of any size is processed in constant memory.
+ *
+ */
+public class RocchioPipeline {
+
+	private static final Logger LOG = LogManager
+			.getLogger(RocchioPipeline.class);
+
+	/**
+	 * Extracts the terms of a document text.
+	 */
+	public interface TermExtractor {
+		public HashSet<String> extract(String text, Locale language)
+				throws Exception;
+	}
+
+	/**
+	 * Receives the classified documents, from a single thread, in completion
+	 * order.
+	 */
+	public interface Sink {
+		public void accept(Document doc, ClassificationResult result)
+				throws Exception;
+	}
+
+	/**
+	 * Extracts the lemmas of the text, as
+	 * {@link RocchioClassificationBenchmark#loadDocsTerms(List, Locale, boolean)}
+	 * .
+	 */
+	public static final TermExtractor LEMMA_EXTRACTOR = new TermExtractor() {
+		@Override
+		public HashSet<String> extract(String text, Locale language)
+				throws Exception {
+			return new HashSet<String>(TextProcessor.getShared(language)
+					.getLemmas(text));
+		}
+	};
+
+	/**
+	 * Extracts the lemmas of the text without PoS tagging, as
+	 * {@link RocchioClassificationBenchmark#loadDocsTerms(List, Locale, boolean, boolean)}
+	 * : much faster than {@link RocchioPipeline#LEMMA_EXTRACTOR} for English,
+	 * but lemmas may differ.
+	 */
+	public static final TermExtractor UNTAGGED_LEMMA_EXTRACTOR = new TermExtractor() {
+		@Override
+		public HashSet<String> extract(String text, Locale language)
+				throws Exception {
+			return new HashSet<String>(TextProcessor.getShared(language, false)
+					.getLemmas(text));
+		}
+	};
+
+	private static final Document END = new Document(null, null, null, null,
+			null);
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private RocchioClassifier classifier;
+	private TermExtractor extractor;
+	private Locale language;
+	private int parallelism;
+	private int bufferSize;
+	private boolean keepText = false;
+
+	/**
+	 * @param classifier
+	 *            a trained classifier.
+	 * @param extractor
+	 *            the term extractor (i.e. {@link RocchioPipeline#LEMMA_EXTRACTOR}
+	 *            ).
+	 * @param language
+	 *            the language of the documents.
+	 * @param parallelism
+	 *            the number of threads extracting terms and classifying.
+	 * @param bufferSize
+	 *            the maximum number of documents waiting between two stages.
+	 */
+	public RocchioPipeline(RocchioClassifier classifier,
+			TermExtractor extractor, Locale language, int parallelism,
+			int bufferSize) {
+		if (parallelism < 1 || bufferSize < 1)
+			throw new IllegalArgumentException(
+					"Parallelism and buffer size must be positive numbers.");
+
+		this.classifier = classifier;
+		this.extractor = extractor;
+		this.language = language;
+		this.parallelism = parallelism;
+		this.bufferSize = bufferSize;
+	}
+
+	public boolean isKeepText() {
+		return keepText;
+	}
+
+	/**
+	 * @param keepText
+	 *            true to keep the text of the documents passed to the sink,
+	 *            false to drop it once terms are extracted (default).
+	 */
+	public void setKeepText(boolean keepText) {
+		this.keepText = keepText;
+	}
+
+	/**
+	 * Classifies the documents in the given folder, expecting to find N
+	 * subfolders, one for each category (see
+	 * {@link RocchioClassificationBenchmark#loadDocsInSubdirs(File)}).
+	 * Folders are listed while documents are processed.
+	 * 
+	 * @param docDir
+	 * @param sink
+	 * @return the number of classified documents.
+	 * @throws Exception
+	 *             the first error of any stage, which stops the pipeline.
+	 */
+	public int run(File docDir, Sink sink) throws Exception {
+		List<Path> dirs = new ArrayList<Path>();
+		DirectoryStream<Path> stream = Files.newDirectoryStream(docDir
+				.toPath());
+		try {
+			for (Path dir : stream)
+				if (Files.isDirectory(dir))
+					dirs.add(dir);
+		} finally {
+			stream.close();
+		}
+
+		SubdirsIterator files = new SubdirsIterator(dirs.iterator());
+		try {
+			return run(files, sink);
+		} finally {
+			files.close();
+		}
+	}
+
+	/**
+	 * Classifies the given files, taking the category of each of them from
+	 * its parent folder name.
+	 * 
+	 * @param files
+	 *            the files, iterated while documents are processed.
+	 * @param sink
+	 * @return the number of classified documents.
+	 * @throws Exception
+	 *             the first error of any stage, which stops the pipeline.
+	 */
+	public int run(final Iterator<Path> files, Sink sink) throws Exception {
+		final BlockingQueue<Document> input = new ArrayBlockingQueue<Document>(
+				bufferSize);
+		final BlockingQueue<Item> output = new ArrayBlockingQueue<Item>(
+				bufferSize);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		ExecutorService executor = Executors
+				.newFixedThreadPool(parallelism + 1);
+		int count = 0;
+		try {
+			// Read documents
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (files.hasNext() && failure.get() == null) {
+							Path file = files.next();
+							Path dir = file.getParent();
+							Document doc = new Document(file.getFileName()
+									.toString(), file.toAbsolutePath()
+									.toString(),
+									RocchioClassificationBenchmark
+											.fileToText(file), null,
+									dir != null ? dir.getFileName()
+											.toString() : null);
+							if (!put(input, doc, failure))
+								return;
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+						rethrowError(e);
+					} finally {
+						for (int i = 0; i < parallelism; i++)
+							put(input, END, failure);
+					}
+				}
+			});
+
+			// Extract terms and classify
+			for (int i = 0; i < parallelism; i++)
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Document doc;
+							while ((doc = take(input, failure)) != null
+									&& doc != END) {
+								doc.setTerms(extractor.extract(doc.getText(),
+										language));
+								if (!keepText)
+									doc.setText(null);
+								ClassificationResult result = classifier
+										.classify(classifier
+												.computeDocumentFeatures(doc));
+								if (!put(output, new Item(doc, result), failure))
+									return;
+							}
+						} catch (Throwable e) {
+							failure.compareAndSet(null, e);
+							rethrowError(e);
+						} finally {
+							put(output, Item.END, failure);
+						}
+					}
+				});
+
+			// Pass results to the sink
+			int running = parallelism;
+			Item item;
+			while (running > 0 && (item = take(output, failure)) != null) {
+				if (item == Item.END) {
+					running--;
+					continue;
+				}
+
+				try {
+					sink.accept(item.doc, item.result);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+					break;
+				}
+				count++;
+
+				if (LOG.isDebugEnabled())
+					LOG.debug(String.format("Pipeline: classified doc %d, '%s'",
+							count, item.doc.getName()));
+			}
+		} finally {
+			// Wait for the stages to stop, so that files are no longer read
+			executor.shutdownNow();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+
+		Throwable e = failure.get();
+		if (e != null) {
+			rethrowError(e);
+			throw e instanceof Exception ? (Exception) e : new Exception(e);
+		}
+
+		LOG.info(String.format("Pipeline: classified %d docs", count));
+
+		return count;
+	}
+
+	/**
+	 * Rethrows the given throwable, if it is an {@link Error} (i.e. after it
+	 * has been recorded as the pipeline failure).
+	 */
+	private static void rethrowError(Throwable e) {
+		if (e instanceof Error)
+			throw (Error) e;
+	}
+
+	/**
+	 * Puts an element in the queue, waiting for space unless the pipeline
+	 * failed.
+	 * 
+	 * @return false if the pipeline failed.
+	 */
+	private static <T> boolean put(BlockingQueue<T> queue, T element,
+			AtomicReference<Throwable> failure) {
+		try {
+			while (!queue.offer(element, POLL_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS))
+				if (failure.get() != null)
+					return false;
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Takes an element from the queue, waiting for it unless the pipeline
+	 * failed.
+	 * 
+	 * @return null if the pipeline failed.
+	 */
+	private static <T> T take(BlockingQueue<T> queue,
+			AtomicReference<Throwable> failure) {
+		try {
+			T element;
+			while ((element = queue.poll(POLL_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS)) == null)
+				if (failure.get() != null)
+					return null;
+			return element;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	/**
+	 * A classified document.
+	 */
+	private static class Item {
+		static final Item END = new Item(null, null);
+
+		final Document doc;
+		final ClassificationResult result;
+
+		Item(Document doc, ClassificationResult result) {
+			this.doc = doc;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Iterates over the files of the given folders, listing each folder only
+	 * when reached. The folder being listed is closed once iterated, or by
+	 * {@link SubdirsIterator#close()}.
+	 */
+	private static class SubdirsIterator implements Iterator<Path>, Closeable {
+		private Iterator<Path> dirs;
+		private DirectoryStream<Path> stream;
+		private Iterator<Path> files;
+		private Path next;
+
+		SubdirsIterator(Iterator<Path> dirs) {
+			this.dirs = dirs;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (next == null) {
+					if (files != null && files.hasNext()) {
+						Path file = files.next();
+						if (Files.isRegularFile(file)
+								&& file.getFileName().toString().indexOf(".") != 0)
+							next = file;
+					} else {
+						if (stream != null)
+							stream.close();
+						stream = null;
+						if (!dirs.hasNext())
+							return false;
+						stream = Files.newDirectoryStream(dirs.next());
+						files = stream.iterator();
+					}
+				}
+				return true;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public Path next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Path file = next;
+			next = null;
+			return file;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (stream != null)
+				stream.close();
+			stream = null;
+			files = null;
+			dirs = Collections.<Path> emptyIterator();
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+/**
+ * A class name along with its classification score.
+ *
+ */
+public class ClassScore implements Comparable<ClassScore> {
+	private String clazz;
+	private double score;
+
+	public ClassScore(String clazz, double score) {
+		super();
+		this.clazz = clazz;
+		this.score = score;
+	}
+
+	public String getClazz() {
+		return clazz;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * Orders by score, higher scores first.
+	 */
+	@Override
+	public int compareTo(ClassScore o) {
+		return Double.compare(o.score, score);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s=%s", clazz, score);
+	}
+}
@@ -1,18 +1,29 @@
 package it.unito.nlplab.semantics.rocchio.utils;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A class to conveniently store a classification result (in terms of best class
- * name and related score).
+ * name and related score), optionally along with the ranking of the top
+ * scoring classes.
  *
  */
 public class ClassificationResult {
 	private String bestClass;
 	private double bestScore;
+	private List<ClassScore> ranking;
 
 	public ClassificationResult(String bestClass, double bestScore) {
+		this(bestClass, bestScore, Collections.<ClassScore> emptyList());
+	}
+
+	public ClassificationResult(String bestClass, double bestScore,
+			List<ClassScore> ranking) {
 		super();
 		this.bestClass = bestClass;
 		this.bestScore = bestScore;
+		this.ranking = ranking;
 	}
 
 	public String getBestClass() {
@@ -30,4 +41,17 @@ public class ClassificationResult {
 	public void setBestScore(double bestScore) {
 		this.bestScore = bestScore;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the top scoring classes, ordered by descending score.
+	 * 
+	 * @return
+	 */
+	public List<ClassScore> getRanking() {
+		return ranking;
+	}
+
+	public void setRanking(List<ClassScore> ranking) {
+		this.ranking = ranking;
+	}
+}
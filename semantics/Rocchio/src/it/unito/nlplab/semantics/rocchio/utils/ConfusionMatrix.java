@@ -0,0 +1,175 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A confusion matrix of classification results, counting documents by
+ * correct class and assigned class.<br/>
+ * Documents with no assigned class are counted with a null assigned class.
+ *
+ */
+public class ConfusionMatrix {
+
+	/**
+	 * The header of the column of documents with no assigned class (see
+	 * {@link ConfusionMatrix#toString()}).
+	 */
+	public static final String NONE = "(none)";
+
+	private Map<String, Map<String, Integer>> counts = new HashMap<String, Map<String, Integer>>();
+	private int total;
+	private int correct;
+
+	/**
+	 * Counts a classified document.
+	 *
+	 * @param correctClass
+	 * @param assignedClass
+	 */
+	public void add(String correctClass, String assignedClass) {
+		add(correctClass, assignedClass, 1);
+	}
+
+	/**
+	 * Adds all the counts of the given matrix.
+	 *
+	 * @param matrix
+	 */
+	public void addAll(ConfusionMatrix matrix) {
+		for (Map.Entry<String, Map<String, Integer>> correctClass : matrix.counts
+				.entrySet())
+			for (Map.Entry<String, Integer> assignedClass : correctClass
+					.getValue().entrySet())
+				add(correctClass.getKey(), assignedClass.getKey(),
+						assignedClass.getValue());
+	}
+
+	private void add(String correctClass, String assignedClass, int count) {
+		Map<String, Integer> row = counts.get(correctClass);
+		if (row == null) {
+			row = new HashMap<String, Integer>();
+			counts.put(correctClass, row);
+		}
+		Integer current = row.get(assignedClass);
+		row.put(assignedClass, (current != null ? current : 0) + count);
+
+		total += count;
+		if (correctClass.equals(assignedClass))
+			correct += count;
+	}
+
+	/**
+	 * Returns the number of documents of the given class assigned to the
+	 * other given class.
+	 *
+	 * @param correctClass
+	 * @param assignedClass
+	 * @return
+	 */
+	public int getCount(String correctClass, String assignedClass) {
+		Map<String, Integer> row = counts.get(correctClass);
+		if (row == null)
+			return 0;
+		Integer count = row.get(assignedClass);
+		return count != null ? count : 0;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public int getCorrect() {
+		return correct;
+	}
+
+	public double getAccuracy() {
+		return total > 0 ? (double) correct / total : 0;
+	}
+
+	/**
+	 * Returns the ratio of documents assigned to the given class which are
+	 * of that class.
+	 *
+	 * @param clazz
+	 * @return
+	 */
+	public double getPrecision(String clazz) {
+		int assigned = 0;
+		for (Map<String, Integer> row : counts.values()) {
+			Integer count = row.get(clazz);
+			if (count != null)
+				assigned += count;
+		}
+		return assigned > 0 ? (double) getCount(clazz, clazz) / assigned : 0;
+	}
+
+	/**
+	 * Returns the ratio of documents of the given class which are assigned to
+	 * that class.
+	 *
+	 * @param clazz
+	 * @return
+	 */
+	public double getRecall(String clazz) {
+		int size = 0;
+		Map<String, Integer> row = counts.get(clazz);
+		if (row != null)
+			for (int count : row.values())
+				size += count;
+		return size > 0 ? (double) getCount(clazz, clazz) / size : 0;
+	}
+
+	/**
+	 * Returns the classes, either correct or assigned, sorted by name. The
+	 * null assigned class is not included.
+	 *
+	 * @return
+	 */
+	public Set<String> getClasses() {
+		Set<String> classes = new TreeSet<String>(counts.keySet());
+		for (Map<String, Integer> row : counts.values())
+			for (String assignedClass : row.keySet())
+				if (assignedClass != null)
+					classes.add(assignedClass);
+		return classes;
+	}
+
+	/**
+	 * Returns the number of documents with no assigned class.
+	 *
+	 * @return
+	 */
+	public int getUnassigned() {
+		int unassigned = 0;
+		for (String correctClass : counts.keySet())
+			unassigned += getCount(correctClass, null);
+		return unassigned;
+	}
+
+	/**
+	 * Returns the matrix as a tab separated table, a row for each class and a
+	 * column for each class, plus a last "(none)" column for the documents
+	 * with no assigned class, if any.
+	 */
+	@Override
+	public String toString() {
+		Set<String> classes = getClasses();
+		boolean unassigned = getUnassigned() > 0;
+		StringBuilder sb = new StringBuilder();
+		for (String clazz : classes)
+			sb.append('\t').append(clazz);
+		if (unassigned)
+			sb.append('\t').append(NONE);
+		for (String correctClass : classes) {
+			sb.append('\n').append(correctClass);
+			for (String assignedClass : classes)
+				sb.append('\t').append(getCount(correctClass, assignedClass));
+			if (unassigned)
+				sb.append('\t').append(getCount(correctClass, null));
+		}
+		return sb.toString();
+	}
+}
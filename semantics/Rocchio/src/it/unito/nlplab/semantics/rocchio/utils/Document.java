@@ -1,7 +1,6 @@
 package it.unito.nlplab.semantics.rocchio.utils;
 
 import it.unito.nlplab.semantics.rocchio.RocchioClassificationBenchmark.ClassificationClassAware;
-import it.unito.nlplap.semantics.utils.MutableDouble;
 import it.unito.nlplap.semantics.utils.MutableInt;
 
 import java.util.HashMap;
@@ -14,7 +13,10 @@ import org.apache.logging.log4j.Logger;
 /**
  * Represents a Document to classify. So it contains document data (name, path,
  * content, category) and also feature collections (terms, termsFrequency,
- * termsWeight, etc.).
+ * termsWeight, etc.).<br/>
+ * Collection features are stored as {@link SparseVector}s, holding only the
+ * terms of the document that are also in the collection's
+ * {@link TermDictionary}.
  *
  */
 public class Document implements ClassificationClassAware<String> {
@@ -23,9 +25,8 @@ public class Document implements ClassificationClassAware<String> {
 	private String name, path, text, category;
 	private HashSet<String> terms = new HashSet<String>();
 	private Map<String, MutableInt> termCount = new HashMap<String, MutableInt>();
-	private Map<String, MutableInt> collectionTermCount = new HashMap<String, MutableInt>();
-	private Map<String, MutableDouble> collectionTermFrequency = new HashMap<String, MutableDouble>();
-	private Map<String, MutableDouble> collectionTermWeight = new HashMap<String, MutableDouble>();
+	private SparseVector collectionTermFrequency = SparseVector.EMPTY;
+	private SparseVector collectionTermWeight = SparseVector.EMPTY;
 
 	public Document(String name, String path, String text,
 			HashSet<String> terms, String category) {
@@ -39,6 +40,23 @@ public class Document implements ClassificationClassAware<String> {
 		setTerms(terms);
 	}
 
+	/**
+	 * Creates a copy of the given document, sharing its data and terms but
+	 * not its collection features (i.e. to compute them against a different
+	 * classifier concurrently).
+	 * 
+	 * @param doc
+	 */
+	public Document(Document doc) {
+		super();
+		this.name = doc.name;
+		this.path = doc.path;
+		this.text = doc.text;
+		this.terms = doc.terms;
+		this.termCount = doc.termCount;
+		this.category = doc.category;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -84,30 +102,19 @@ public class Document implements ClassificationClassAware<String> {
 		this.termCount = termCount;
 	}
 
-	public Map<String, MutableInt> getCollectionTermCount() {
-		return collectionTermCount;
-	}
-
-	public void setCollectionTermCount(
-			Map<String, MutableInt> collectionTermCount) {
-		this.collectionTermCount = collectionTermCount;
-	}
-
-	public Map<String, MutableDouble> getCollectionTermFrequency() {
+	public SparseVector getCollectionTermFrequency() {
 		return collectionTermFrequency;
 	}
 
-	public void setCollectionTermFrequency(
-			Map<String, MutableDouble> collectionTermFrequency) {
+	public void setCollectionTermFrequency(SparseVector collectionTermFrequency) {
 		this.collectionTermFrequency = collectionTermFrequency;
 	}
 
-	public Map<String, MutableDouble> getCollectionTermWeight() {
+	public SparseVector getCollectionTermWeight() {
 		return collectionTermWeight;
 	}
 
-	public void setCollectionTermWeight(
-			Map<String, MutableDouble> collectionTermWeight) {
+	public void setCollectionTermWeight(SparseVector collectionTermWeight) {
 		this.collectionTermWeight = collectionTermWeight;
 	}
 
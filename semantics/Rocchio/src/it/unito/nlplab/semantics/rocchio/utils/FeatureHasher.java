@@ -0,0 +1,105 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Maps terms to a fixed number of features (i.e. the hashing trick), instead
+ * of assigning an id to each term with a {@link TermDictionary}.<br/>
+ * Each term is hashed to a feature index and to a sign, so that colliding
+ * terms tend to cancel out rather than add up. Memory is bounded by the
+ * number of features regardless of the vocabulary size, and no dictionary
+ * lookup is needed.
+ *
+ */
+public class FeatureHasher {
+
+	private final int width;
+
+	/**
+	 * @param width
+	 *            the number of features (i.e. hash buckets).
+	 */
+	public FeatureHasher(int width) {
+		if (width < 1)
+			throw new IllegalArgumentException(
+					"Width must be a positive number.");
+		this.width = width;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns the feature index of the given term.
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int getIndex(String term) {
+		return (mix(term.hashCode()) & Integer.MAX_VALUE) % width;
+	}
+
+	/**
+	 * Returns the sign (1 or -1) of the given term.
+	 *
+	 * @param term
+	 * @return
+	 */
+	public int getSign(String term) {
+		return (mix(term.hashCode() ^ 0x9E3779B9) & 1) == 0 ? 1 : -1;
+	}
+
+	/**
+	 * Returns the signed count of the given terms in each feature. Features
+	 * whose terms cancel out are not included.
+	 *
+	 * @param terms
+	 * @return
+	 */
+	public SparseVector transform(Collection<String> terms) {
+		// Sort signed terms by feature index
+		long[] keys = new long[terms.size()];
+		int size = 0;
+		for (String term : terms)
+			keys[size++] = ((long) getIndex(term) << 1)
+					| (getSign(term) > 0 ? 1 : 0);
+		Arrays.sort(keys);
+
+		// Merge terms with the same feature index
+		int[] indexes = new int[size];
+		double[] values = new double[size];
+		int count = 0;
+		for (int i = 0; i < size;) {
+			int index = (int) (keys[i] >>> 1);
+			int value = 0;
+			for (; i < size && (int) (keys[i] >>> 1) == index; i++)
+				value += (keys[i] & 1) != 0 ? 1 : -1;
+			if (value != 0) {
+				indexes[count] = index;
+				values[count] = value;
+				count++;
+			}
+		}
+
+		return new SparseVector(Arrays.copyOf(indexes, count), Arrays.copyOf(
+				values, count));
+	}
+
+	/**
+	 * Scrambles the bits of a hash code (MurmurHash3 finalizer), since
+	 * {@link String#hashCode()} is poorly distributed in the low bits.
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		hash *= 0xC2B2AE35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -0,0 +1,68 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+/**
+ * Scores to select the most relevant terms of a class, based on the
+ * contingency table of term and class occurrences in the training
+ * documents.
+ *
+ */
+public enum FeatureSelection {
+	/**
+	 * No selection.
+	 */
+	NONE {
+		@Override
+		public double score(double a, double b, double c, double d) {
+			return 0;
+		}
+	},
+	/**
+	 * Chi-square statistic of the term and the class.
+	 */
+	CHI_SQUARE {
+		@Override
+		public double score(double a, double b, double c, double d) {
+			double n = a + b + c + d;
+			double denominator = (a + c) * (b + d) * (a + b) * (c + d);
+			if (denominator == 0)
+				return 0;
+			return n * (a * d - c * b) * (a * d - c * b) / denominator;
+		}
+	},
+	/**
+	 * Information Gain (i.e. mutual information) of the term presence about
+	 * the class membership.
+	 */
+	INFORMATION_GAIN {
+		@Override
+		public double score(double a, double b, double c, double d) {
+			double n = a + b + c + d;
+			return information(a, n, a + b, a + c)
+					+ information(b, n, a + b, b + d)
+					+ information(c, n, c + d, a + c)
+					+ information(d, n, c + d, b + d);
+		}
+
+		private double information(double count, double n, double termCount,
+				double classCount) {
+			if (count == 0)
+				return 0;
+			return count / n * Math.log(count * n / (termCount * classCount));
+		}
+	};
+
+	/**
+	 * Returns the score of a term for a class.
+	 * 
+	 * @param a
+	 *            documents of the class containing the term.
+	 * @param b
+	 *            documents of other classes containing the term.
+	 * @param c
+	 *            documents of the class not containing the term.
+	 * @param d
+	 *            documents of other classes not containing the term.
+	 * @return
+	 */
+	public abstract double score(double a, double b, double c, double d);
+}
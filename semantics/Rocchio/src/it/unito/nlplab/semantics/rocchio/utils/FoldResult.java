@@ -0,0 +1,61 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+/**
+ * The result of a cross validation fold: the confusion matrix of its test
+ * documents and the timings of the fold classifier.
+ *
+ */
+public class FoldResult {
+	private int fold;
+	private int trainingSize;
+	private ConfusionMatrix confusionMatrix;
+	private long trainingTime;
+	private long classificationTime;
+
+	public FoldResult(int fold, int trainingSize,
+			ConfusionMatrix confusionMatrix, long trainingTime,
+			long classificationTime) {
+		super();
+		this.fold = fold;
+		this.trainingSize = trainingSize;
+		this.confusionMatrix = confusionMatrix;
+		this.trainingTime = trainingTime;
+		this.classificationTime = classificationTime;
+	}
+
+	public int getFold() {
+		return fold;
+	}
+
+	public int getTrainingSize() {
+		return trainingSize;
+	}
+
+	public ConfusionMatrix getConfusionMatrix() {
+		return confusionMatrix;
+	}
+
+	/**
+	 * @return the training time, in milliseconds.
+	 */
+	public long getTrainingTime() {
+		return trainingTime;
+	}
+
+	/**
+	 * @return the time to compute features of the test documents and
+	 *         classify them, in milliseconds.
+	 */
+	public long getClassificationTime() {
+		return classificationTime;
+	}
+
+	@Override
+	public String toString() {
+		return String
+				.format("Fold %d: training=%d, test=%d, accuracy=%.4f, trainingTime=%dms, classificationTime=%dms",
+						fold, trainingSize, confusionMatrix.getTotal(),
+						confusionMatrix.getAccuracy(), trainingTime,
+						classificationTime);
+	}
+}
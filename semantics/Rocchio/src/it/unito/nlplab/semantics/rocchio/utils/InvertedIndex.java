@@ -0,0 +1,77 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+/**
+ * An inverted index of class vectors: for each term id it holds the postings
+ * list of the classes with a non-zero weight for the term. It allows to score
+ * all the classes in one pass over the terms of a document.
+ *
+ */
+public class InvertedIndex {
+
+	private static final int[] NO_CLASSES = new int[0];
+	private static final double[] NO_WEIGHTS = new double[0];
+
+	private final int classCount;
+	private final int[][] postingClasses;
+	private final double[][] postingWeights;
+
+	/**
+	 * Builds the index for the given class vectors.
+	 * 
+	 * @param classVectors
+	 *            the class vectors; classes are identified by their position.
+	 * @param termCount
+	 *            the number of terms in the dictionary.
+	 */
+	public InvertedIndex(SparseVector[] classVectors, int termCount) {
+		this.classCount = classVectors.length;
+
+		// Count postings per term
+		int[] sizes = new int[termCount];
+		for (SparseVector vector : classVectors)
+			for (int i = 0; i < vector.size(); i++)
+				sizes[vector.getIndex(i)]++;
+
+		postingClasses = new int[termCount][];
+		postingWeights = new double[termCount][];
+		for (int t = 0; t < termCount; t++) {
+			postingClasses[t] = sizes[t] > 0 ? new int[sizes[t]] : NO_CLASSES;
+			postingWeights[t] = sizes[t] > 0 ? new double[sizes[t]]
+					: NO_WEIGHTS;
+		}
+
+		// Fill postings (ordered by class)
+		int[] filled = new int[termCount];
+		for (int c = 0; c < classVectors.length; c++) {
+			SparseVector vector = classVectors[c];
+			for (int i = 0; i < vector.size(); i++) {
+				int t = vector.getIndex(i);
+				postingClasses[t][filled[t]] = c;
+				postingWeights[t][filled[t]] = vector.getValue(i);
+				filled[t]++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the dot product of the given vector with each class vector.
+	 * 
+	 * @param vector
+	 * @return
+	 */
+	public double[] dot(SparseVector vector) {
+		double[] sums = new double[classCount];
+		for (int i = 0; i < vector.size(); i++) {
+			int t = vector.getIndex(i);
+			if (t >= postingClasses.length)
+				continue;
+
+			double value = vector.getValue(i);
+			int[] classes = postingClasses[t];
+			double[] weights = postingWeights[t];
+			for (int p = 0; p < classes.length; p++)
+				sums[classes[p]] += value * weights[p];
+		}
+		return sums;
+	}
+}
@@ -0,0 +1,207 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import it.unito.nlplap.semantics.utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A read-only Rocchio model, accessed directly from a memory-mapped model
+ * file (see {@link RocchioModelFile}) instead of being copied in memory.<br/>
+ * Processes mapping the same file share the operating system page cache, so
+ * only class names and norms are held in the heap.<br/>
+ * The model is thread-safe, since the buffer is accessed only by absolute
+ * position.
+ *
+ */
+public class MappedRocchioModel {
+
+	private final ByteBuffer buffer;
+	private final int termCount;
+	private final int tableSize;
+	private final int idfPosition;
+	private final int offsetsPosition;
+	private final int tablePosition;
+	private final int bytesPosition;
+
+	private final String[] classNames;
+	private final double[] classNorms;
+	private final int[] classSizes;
+	private final int[] classPositions;
+
+	private final TermDictionary terms = new TermDictionary() {
+		@Override
+		public int add(String term) {
+			int id = getId(term);
+			if (id < 0)
+				throw new UnsupportedOperationException(
+						"The dictionary of a mapped model is read-only.");
+			return id;
+		}
+
+		@Override
+		public int getId(String term) {
+			return getTermId(term);
+		}
+
+		@Override
+		public String getTerm(int id) {
+			return MappedRocchioModel.this.getTerm(id);
+		}
+
+		@Override
+		public boolean contains(String term) {
+			return getTermId(term) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return termCount;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("MappedTermDictionary[size=%d]", termCount);
+		}
+	};
+
+	/**
+	 * Maps the given model file.
+	 *
+	 * @param file
+	 *            a file written by
+	 *            {@link RocchioModelFile#save(File, TermDictionary, java.util.BitSet, double[], String[], SparseVector[], double[])}
+	 *            .
+	 * @throws IOException
+	 */
+	public MappedRocchioModel(File file) throws IOException {
+		buffer = RocchioModelFile.map(file);
+
+		termCount = buffer.getInt(8);
+		int classCount = buffer.getInt(12);
+		tableSize = buffer.getInt(16);
+		idfPosition = RocchioModelFile.HEADER_SIZE;
+		offsetsPosition = idfPosition + termCount * 8;
+		tablePosition = offsetsPosition + (termCount + 1) * 4;
+		bytesPosition = tablePosition + tableSize * 4;
+
+		// Find class vectors
+		classNames = new String[classCount];
+		classNorms = new double[classCount];
+		classSizes = new int[classCount];
+		classPositions = new int[classCount];
+		int position = bytesPosition + buffer.getInt(tablePosition - 4);
+		for (int c = 0; c < classCount; c++) {
+			int length = buffer.getInt(position);
+			classNames[c] = RocchioModelFile.getString(buffer, position + 4,
+					length);
+			position += 4 + length;
+			classNorms[c] = buffer.getDouble(position);
+			position += 8;
+			classSizes[c] = buffer.getInt(position);
+			position += 4;
+			classPositions[c] = position;
+			position += classSizes[c] * (4 + 8);
+		}
+	}
+
+	/**
+	 * Returns a read-only view of the model term dictionary.
+	 *
+	 * @return
+	 */
+	public TermDictionary getTerms() {
+		return terms;
+	}
+
+	/**
+	 * Returns the id of the given term, looking it up in the term table
+	 * (without allocating).
+	 *
+	 * @param term
+	 * @return the id of the term, or -1 if the term is not in the model.
+	 */
+	public int getTermId(String term) {
+		int slot = RocchioModelFile.getSlot(term, tableSize);
+		while (true) {
+			int id = buffer.getInt(tablePosition + slot * 4) - 1;
+			if (id < 0)
+				return -1;
+			if (termEquals(id, term))
+				return id;
+			slot = (slot + 1) & (tableSize - 1);
+		}
+	}
+
+	private boolean termEquals(int id, String term) {
+		int start = buffer.getInt(offsetsPosition + id * 4);
+		int end = buffer.getInt(offsetsPosition + (id + 1) * 4);
+		return Utils.equalsUtf8(buffer, bytesPosition + start, bytesPosition
+				+ end, term, false);
+	}
+
+	public String getTerm(int id) {
+		int start = buffer.getInt(offsetsPosition + id * 4);
+		int end = buffer.getInt(offsetsPosition + (id + 1) * 4);
+		return RocchioModelFile
+				.getString(buffer, bytesPosition + start, end - start);
+	}
+
+	public double getIdf(int id) {
+		return buffer.getDouble(idfPosition + id * 8);
+	}
+
+	public String[] getClassNames() {
+		return classNames;
+	}
+
+	public double[] getClassNorms() {
+		return classNorms;
+	}
+
+	/**
+	 * Returns the dot product of the given vector with a class vector,
+	 * looking up its entries in the mapped class term ids.
+	 *
+	 * @param vector
+	 * @param clazz
+	 *            the class index (see
+	 *            {@link MappedRocchioModel#getClassNames()}).
+	 * @return
+	 */
+	public double dot(SparseVector vector, int clazz) {
+		int indexes = classPositions[clazz];
+		int values = indexes + classSizes[clazz] * 4;
+
+		double sum = 0;
+		int from = 0;
+		for (int i = 0; i < vector.size(); i++) {
+			int position = binarySearch(indexes, from, classSizes[clazz],
+					vector.getIndex(i));
+			if (position >= 0) {
+				sum += vector.getValue(i)
+						* buffer.getDouble(values + position * 8);
+				from = position + 1;
+			} else
+				from = -position - 1;
+		}
+		return sum;
+	}
+
+	private int binarySearch(int indexes, int from, int to, int key) {
+		int low = from;
+		int high = to - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int value = buffer.getInt(indexes + mid * 4);
+			if (value < key)
+				low = mid + 1;
+			else if (value > key)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+}
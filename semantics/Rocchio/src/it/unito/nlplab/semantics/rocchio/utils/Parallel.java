@@ -1,58 +1,265 @@
 package it.unito.nlplab.semantics.rocchio.utils;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Utility class for parallel tasks execution.
+ * Utility class for parallel tasks execution: a parallel for loop on a
+ * work-stealing {@link ForkJoinPool}, splitting elements in chunks.<br/>
+ * The first exception thrown by an operation stops the loop and is rethrown
+ * to the caller. Loops can be cancelled, and report their progress.<br/>
+ * Pool threads are daemon ones, so they never prevent the JVM from exiting;
+ * still, a {@link Parallel} with its own pool should be shut down when no
+ * longer needed.
  *
  */
 public class Parallel {
-	private static final int NUM_CORES = Runtime.getRuntime()
-			.availableProcessors();
 
-	private static final ExecutorService forPool = Executors
-			.newFixedThreadPool(NUM_CORES);
+	/**
+	 * Number of chunks for each thread, so that work can be stolen when some
+	 * chunks are slower than others.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final boolean ownPool;
+
+	/**
+	 * Creates a {@link Parallel} with its own pool.
+	 *
+	 * @param parallelism
+	 *            the number of threads.
+	 */
+	public Parallel(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException(
+					"Parallelism must be a positive number.");
+		this.pool = new ForkJoinPool(parallelism);
+		this.ownPool = true;
+	}
+
+	/**
+	 * Creates a {@link Parallel} on the given pool (which is not shut down by
+	 * {@link Parallel#shutdown()}).
+	 *
+	 * @param pool
+	 */
+	public Parallel(ForkJoinPool pool) {
+		this.pool = pool;
+		this.ownPool = false;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Shuts down the pool, if owned. Running loops are completed.
+	 */
+	public void shutdown() {
+		if (ownPool)
+			pool.shutdown();
+	}
 
 	/**
 	 * Invoke given operation in parallel on each element of the given
-	 * {@link Iterable}.
-	 * 
+	 * {@link Iterable}, waiting for completion.
+	 *
 	 * @param elements
 	 * @param operation
+	 * @throws CancellationException
+	 *             if the loop has been cancelled.
 	 */
-	public static <T> void For(final Iterable<T> elements,
-			final Operation<T> operation) {
-		try {
-			// invokeAll blocks for us until all submitted tasks in the call
-			// complete
-			forPool.invokeAll(createCallables(elements, operation));
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
+	public <T> void For(Iterable<T> elements, Operation<T> operation) {
+		For(elements, operation, null);
 	}
 
-	private static <T> Collection<Callable<Void>> createCallables(
-			final Iterable<T> elements, final Operation<T> operation) {
-		List<Callable<Void>> callables = new LinkedList<Callable<Void>>();
-		int t = 99999;
-		int i = 0;
-		for (final T elem : elements) {
-			final int c = i++;
-			callables.add(new Callable<Void>() {
-				@Override
-				public Void call() {
-					operation.perform(elem, c, t);
-					return null;
-				}
-			});
+	/**
+	 * Invoke given operation in parallel on each element of the given
+	 * {@link Iterable}, waiting for completion.
+	 *
+	 * @param elements
+	 * @param operation
+	 * @param progress
+	 *            an optional progress callback.
+	 * @throws CancellationException
+	 *             if the loop has been cancelled.
+	 */
+	public <T> void For(Iterable<T> elements, final Operation<T> operation,
+			Progress progress) {
+		final List<T> list = new ArrayList<T>();
+		for (T element : elements)
+			list.add(element);
+
+		For(list.size(), new IndexOperation() {
+			@Override
+			public void perform(int index) {
+				operation.perform(list.get(index), index, list.size());
+			}
+		}, progress);
+	}
+
+	/**
+	 * Invoke given operation in parallel on each index from 0 (included) to
+	 * size (excluded), waiting for completion.
+	 *
+	 * @param size
+	 * @param operation
+	 * @throws CancellationException
+	 *             if the loop has been cancelled.
+	 */
+	public void For(int size, IndexOperation operation) {
+		For(size, operation, null);
+	}
+
+	/**
+	 * Invoke given operation in parallel on each index from 0 (included) to
+	 * size (excluded), waiting for completion.
+	 *
+	 * @param size
+	 * @param operation
+	 * @param progress
+	 *            an optional progress callback.
+	 * @throws CancellationException
+	 *             if the loop has been cancelled.
+	 */
+	public void For(int size, IndexOperation operation, Progress progress) {
+		start(size, operation, progress).join();
+	}
+
+	/**
+	 * Starts invoking the given operation in parallel on each index from 0
+	 * (included) to size (excluded), without waiting for completion.
+	 *
+	 * @param size
+	 * @param operation
+	 * @param progress
+	 *            an optional progress callback.
+	 * @return the running loop, to wait for or cancel.
+	 */
+	public Loop start(int size, IndexOperation operation, Progress progress) {
+		int chunkSize = Math.max(1, size
+				/ (pool.getParallelism() * CHUNKS_PER_THREAD));
+		Loop loop = new Loop(size, operation, progress);
+		loop.task = loop.new ChunkTask(0, size, chunkSize);
+		pool.execute(loop.task);
+		return loop;
+	}
+
+	/**
+	 * A running parallel loop.
+	 */
+	public static class Loop {
+		private final int total;
+		private final IndexOperation operation;
+		private final Progress progress;
+		private final AtomicInteger completed = new AtomicInteger();
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private volatile boolean cancelled;
+		private ChunkTask task;
+
+		private Loop(int total, IndexOperation operation, Progress progress) {
+			this.total = total;
+			this.operation = operation;
+			this.progress = progress;
+		}
+
+		/**
+		 * Cancels the loop: operations not yet started are skipped.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		public boolean isDone() {
+			return task.isDone();
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * Returns the number of completed operations.
+		 *
+		 * @return
+		 */
+		public int getCompleted() {
+			return completed.get();
 		}
 
-		return callables;
+		/**
+		 * Waits for the loop to complete, rethrowing the first exception
+		 * thrown by an operation (wrapped in a {@link RuntimeException} if
+		 * checked).
+		 *
+		 * @throws CancellationException
+		 *             if the loop has been cancelled before all the operations
+		 *             were performed.
+		 */
+		public void join() {
+			task.join();
+
+			Throwable t = failure.get();
+			if (t instanceof RuntimeException)
+				throw (RuntimeException) t;
+			if (t instanceof Error)
+				throw (Error) t;
+			if (t != null)
+				throw new RuntimeException(t);
+			if (cancelled && completed.get() < total)
+				throw new CancellationException(String.format(
+						"Parallel loop cancelled after %d/%d operations.",
+						completed.get(), total));
+		}
+
+		private class ChunkTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+
+			private final int from, to, chunkSize;
+
+			public ChunkTask(int from, int to, int chunkSize) {
+				this.from = from;
+				this.to = to;
+				this.chunkSize = chunkSize;
+			}
+
+			@Override
+			protected void compute() {
+				if (to - from <= chunkSize) {
+					int count = 0;
+					try {
+						for (int i = from; i < to; i++) {
+							if (cancelled || failure.get() != null)
+								break;
+							operation.perform(i);
+							count++;
+						}
+					} catch (Throwable t) {
+						if (!failure.compareAndSet(null, t))
+							failure.get().addSuppressed(t);
+					}
+
+					int done = completed.addAndGet(count);
+					if (progress != null && count > 0)
+						progress.update(done, total);
+					return;
+				}
+
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(from, middle, chunkSize),
+						new ChunkTask(middle, to, chunkSize));
+			}
+		}
 	}
 
 	/**
@@ -62,11 +269,34 @@ public class Parallel {
 	 */
 	public static interface Operation<T> {
 		/**
-		 * 		 
-		 * @param pParameter the element
-		 * @param index the index of the element
-		 * @param total the total number of elements (<b>Currently not working</b>)
+		 * @param pParameter
+		 *            the element
+		 * @param index
+		 *            the index of the element
+		 * @param total
+		 *            the total number of elements
 		 */
 		public void perform(T pParameter, int index, int total);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Interface the operation on indexes MUST implement.
+	 */
+	public static interface IndexOperation {
+		public void perform(int index);
+	}
+
+	/**
+	 * Progress callback, invoked after each chunk of operations (possibly
+	 * from different threads at the same time).
+	 */
+	public static interface Progress {
+		/**
+		 * @param completed
+		 *            the number of completed operations.
+		 * @param total
+		 *            the total number of operations.
+		 */
+		public void update(int completed, int total);
+	}
+}
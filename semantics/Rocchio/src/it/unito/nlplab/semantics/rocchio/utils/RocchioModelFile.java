@@ -0,0 +1,366 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+
+/**
+ * A trained Rocchio model in a compact binary format, which can be loaded
+ * without the training documents.<br/>
+ * The layout (big-endian, with fixed size sections so that it can be
+ * memory-mapped) is:
+ * <ul>
+ * <li>header: magic, version, term count, class count, term table size</li>
+ * <li>IDF values: <code>double[termCount]</code></li>
+ * <li>term offsets in the term bytes: <code>int[termCount + 1]</code></li>
+ * <li>term table, an open addressing hash table of term ids (plus 1, 0 for
+ * empty slots): <code>int[tableSize]</code></li>
+ * <li>term bytes, UTF-8</li>
+ * <li>for each class: name length and UTF-8 bytes, norm, vector size, term ids
+ * <code>int[size]</code> and weights <code>double[size]</code></li>
+ * </ul>
+ * Only the terms used as features (i.e. not pruned) are stored, with ids
+ * renumbered in the same order.
+ *
+ */
+public class RocchioModelFile {
+
+	public static final int MAGIC = 0x524F4343;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 5 * 4;
+
+	private TermDictionary terms;
+	private double[] idf;
+	private String[] classNames;
+	private SparseVector[] classVectors;
+	private double[] classNorms;
+
+	private RocchioModelFile() {
+	}
+
+	public TermDictionary getTerms() {
+		return terms;
+	}
+
+	public double[] getIdf() {
+		return idf;
+	}
+
+	public String[] getClassNames() {
+		return classNames;
+	}
+
+	public SparseVector[] getClassVectors() {
+		return classVectors;
+	}
+
+	public double[] getClassNorms() {
+		return classNorms;
+	}
+
+	/**
+	 * Writes a model to the given file.
+	 *
+	 * @param file
+	 * @param terms
+	 * @param vocabulary
+	 *            the ids of the terms to store (i.e. not pruned).
+	 * @param idf
+	 *            IDF values indexed by term id.
+	 * @param classNames
+	 * @param classVectors
+	 *            class vectors, with non-zero weights on vocabulary terms
+	 *            only.
+	 * @param classNorms
+	 * @throws IOException
+	 */
+	public static void save(File file, TermDictionary terms,
+			BitSet vocabulary, double[] idf, String[] classNames,
+			SparseVector[] classVectors, double[] classNorms)
+			throws IOException {
+		// Renumber vocabulary terms
+		int termCount = vocabulary.cardinality();
+		int[] newIds = new int[terms.size()];
+		byte[][] termBytes = new byte[termCount][];
+		int id = 0;
+		for (int t = vocabulary.nextSetBit(0); t >= 0; t = vocabulary
+				.nextSetBit(t + 1)) {
+			newIds[t] = id;
+			termBytes[id] = terms.getTerm(t).getBytes(StandardCharsets.UTF_8);
+			id++;
+		}
+
+		// Build term table
+		int tableSize = getTableSize(termCount);
+		int[] table = new int[tableSize];
+		for (int t = vocabulary.nextSetBit(0); t >= 0; t = vocabulary
+				.nextSetBit(t + 1)) {
+			int slot = getSlot(terms.getTerm(t), tableSize);
+			while (table[slot] != 0)
+				slot = (slot + 1) & (tableSize - 1);
+			table[slot] = newIds[t] + 1;
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(termCount);
+			out.writeInt(classNames.length);
+			out.writeInt(tableSize);
+
+			for (int t = vocabulary.nextSetBit(0); t >= 0; t = vocabulary
+					.nextSetBit(t + 1))
+				out.writeDouble(idf[t]);
+
+			int offset = 0;
+			out.writeInt(offset);
+			for (byte[] bytes : termBytes) {
+				offset += bytes.length;
+				out.writeInt(offset);
+			}
+
+			for (int slot : table)
+				out.writeInt(slot);
+
+			for (byte[] bytes : termBytes)
+				out.write(bytes);
+
+			for (int c = 0; c < classNames.length; c++) {
+				byte[] name = classNames[c].getBytes(StandardCharsets.UTF_8);
+				out.writeInt(name.length);
+				out.write(name);
+				out.writeDouble(classNorms[c]);
+
+				SparseVector vector = classVectors[c];
+				out.writeInt(vector.size());
+				for (int i = 0; i < vector.size(); i++)
+					out.writeInt(newIds[vector.getIndex(i)]);
+				for (int i = 0; i < vector.size(); i++)
+					out.writeDouble(vector.getValue(i));
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads a model from the given file, copying it in memory. The file is
+	 * read, not mapped, so that it is not kept open (i.e. it can be rewritten
+	 * at once).
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static RocchioModelFile load(File file) throws IOException {
+		ByteBuffer buffer = check(
+				ByteBuffer.wrap(Files.readAllBytes(file.toPath())), file);
+
+		RocchioModelFile model = new RocchioModelFile();
+		int termCount = buffer.getInt(8);
+		int classCount = buffer.getInt(12);
+		int tableSize = buffer.getInt(16);
+
+		int position = HEADER_SIZE;
+		model.idf = new double[termCount];
+		for (int t = 0; t < termCount; t++)
+			model.idf[t] = buffer.getDouble(position + t * 8);
+		position += termCount * 8;
+
+		int offsets = position;
+		int bytes = offsets + (termCount + 1) * 4 + tableSize * 4;
+		model.terms = new TermDictionary();
+		for (int t = 0; t < termCount; t++) {
+			int start = buffer.getInt(offsets + t * 4);
+			int end = buffer.getInt(offsets + (t + 1) * 4);
+			model.terms.add(getString(buffer, bytes + start, end - start));
+		}
+		position = bytes + buffer.getInt(offsets + termCount * 4);
+
+		model.classNames = new String[classCount];
+		model.classNorms = new double[classCount];
+		model.classVectors = new SparseVector[classCount];
+		for (int c = 0; c < classCount; c++) {
+			int length = buffer.getInt(position);
+			model.classNames[c] = getString(buffer, position + 4, length);
+			position += 4 + length;
+			model.classNorms[c] = buffer.getDouble(position);
+			position += 8;
+
+			int size = buffer.getInt(position);
+			position += 4;
+			int[] indexes = new int[size];
+			double[] values = new double[size];
+			for (int i = 0; i < size; i++) {
+				indexes[i] = buffer.getInt(position + i * 4);
+				if (indexes[i] < (i > 0 ? indexes[i - 1] + 1 : 0)
+						|| indexes[i] >= termCount)
+					throw new IOException(String.format(
+							"Rocchio model file '%s' is corrupt: bad term id %d in class '%s'.",
+							file, indexes[i], model.classNames[c]));
+			}
+			position += size * 4;
+			for (int i = 0; i < size; i++)
+				values[i] = buffer.getDouble(position + i * 8);
+			position += size * 8;
+			model.classVectors[c] = new SparseVector(indexes, values);
+		}
+
+		return model;
+	}
+
+	/**
+	 * Maps the given model file in memory (read-only), checking its header
+	 * and the bounds of its sections.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static MappedByteBuffer map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return check(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()), file);
+		} finally {
+			// The mapping stays valid after closing the channel
+			raf.close();
+		}
+	}
+
+	/**
+	 * Checks the header and the bounds of the sections of the model in the
+	 * given buffer.
+	 *
+	 * @param buffer
+	 * @param file
+	 *            the model file, for error messages.
+	 * @return the buffer.
+	 * @throws IOException
+	 *             if the buffer does not contain a valid model.
+	 */
+	private static <T extends ByteBuffer> T check(T buffer, File file)
+			throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IOException(String.format(
+					"'%s' is not a Rocchio model file.", file));
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException(String.format(
+					"Unsupported Rocchio model version %d in '%s'.",
+					buffer.getInt(4), file));
+		if (getModelSize(buffer) != buffer.limit())
+			throw new IOException(String.format(
+					"Rocchio model file '%s' is truncated or corrupt.", file));
+		return buffer;
+	}
+
+	/**
+	 * Returns the size of the model in the given buffer, from the sizes in its
+	 * header and in its class sections. Term offsets and term table entries
+	 * are checked too, so that term lookups stay inside the buffer and always
+	 * find an empty slot.
+	 *
+	 * @param buffer
+	 * @return the size, or -1 if the header or a section points outside the
+	 *         buffer.
+	 */
+	private static long getModelSize(ByteBuffer buffer) {
+		int termCount = buffer.getInt(8);
+		int classCount = buffer.getInt(12);
+		int tableSize = buffer.getInt(16);
+		if (termCount < 0 || classCount < 0 || tableSize <= 0
+				|| Integer.bitCount(tableSize) != 1
+				|| tableSize < 2L * termCount)
+			return -1;
+
+		long offsetsPosition = HEADER_SIZE + termCount * 8L;
+		long tablePosition = offsetsPosition + (termCount + 1L) * 4;
+		long bytesPosition = tablePosition + tableSize * 4L;
+		if (bytesPosition > buffer.limit())
+			return -1;
+
+		// Term offsets must not decrease
+		int offset = buffer.getInt((int) offsetsPosition);
+		if (offset != 0)
+			return -1;
+		for (int t = 1; t <= termCount; t++) {
+			int next = buffer.getInt((int) offsetsPosition + t * 4);
+			if (next < offset)
+				return -1;
+			offset = next;
+		}
+
+		// Each term exactly once in the table, leaving empty slots
+		int used = 0;
+		for (int slot = 0; slot < tableSize; slot++) {
+			int id = buffer.getInt((int) tablePosition + slot * 4);
+			if (id < 0 || id > termCount)
+				return -1;
+			if (id > 0)
+				used++;
+		}
+		if (used != termCount)
+			return -1;
+
+		long position = bytesPosition + offset;
+		for (int c = 0; c < classCount; c++) {
+			if (position + 4 > buffer.limit())
+				return -1;
+			int length = buffer.getInt((int) position);
+			position += 4 + (long) length + 8;
+			if (length < 0 || position + 4 > buffer.limit())
+				return -1;
+			int size = buffer.getInt((int) position);
+			if (size < 0)
+				return -1;
+			position += 4 + size * (4L + 8);
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the size of the term table for the given number of terms (a
+	 * power of two, at most half full).
+	 *
+	 * @param termCount
+	 * @return
+	 */
+	public static int getTableSize(int termCount) {
+		int size = 2;
+		while (size < termCount * 2)
+			size <<= 1;
+		return size;
+	}
+
+	/**
+	 * Returns the first slot to probe for the given term in the term table.
+	 *
+	 * @param term
+	 * @param tableSize
+	 * @return
+	 */
+	public static int getSlot(String term, int tableSize) {
+		int hash = term.hashCode();
+		hash ^= hash >>> 16;
+		return hash & (tableSize - 1);
+	}
+
+	public static String getString(ByteBuffer buffer, int position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = buffer.get(position + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
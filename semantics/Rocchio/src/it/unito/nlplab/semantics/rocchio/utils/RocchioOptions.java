@@ -0,0 +1,168 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import it.unito.nlplab.semantics.rocchio.RocchioClassifier;
+
+/**
+ * Training and classification options of a {@link RocchioClassifier}.
+ *
+ */
+public class RocchioOptions {
+	private double pruningThreshold = 0;
+	private boolean invertedIndex = false;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int minDocumentFrequency = 0;
+	private double maxDocumentFrequency = 1;
+	private FeatureSelection featureSelection = FeatureSelection.NONE;
+	private int featuresPerClass = 0;
+	private int maxVocabularySize = 0;
+	private int hashingWidth = 0;
+	private Parallel parallel;
+
+	public double getPruningThreshold() {
+		return pruningThreshold;
+	}
+
+	/**
+	 * @param pruningThreshold
+	 *            a threshold to prune terms with IDF below. Set to 0 to
+	 *            disable.
+	 */
+	public void setPruningThreshold(double pruningThreshold) {
+		this.pruningThreshold = pruningThreshold;
+	}
+
+	public boolean isInvertedIndex() {
+		return invertedIndex;
+	}
+
+	/**
+	 * @param invertedIndex
+	 *            true to build an inverted index (term -&gt; class postings)
+	 *            at the end of training, so that classification only touches
+	 *            the classes' weights of the document terms. Useful with a
+	 *            large number of classes.
+	 */
+	public void setInvertedIndex(boolean invertedIndex) {
+		this.invertedIndex = invertedIndex;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @param parallelism
+	 *            the number of threads used for parallel operations (i.e.
+	 *            batch classification). Defaults to the number of available
+	 *            processors.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException(
+					"Parallelism must be a positive number.");
+		this.parallelism = parallelism;
+	}
+
+	public int getMinDocumentFrequency() {
+		return minDocumentFrequency;
+	}
+
+	/**
+	 * @param minDocumentFrequency
+	 *            the minimum number of training documents a term must appear
+	 *            in not to be pruned. Set to 0 to disable.
+	 */
+	public void setMinDocumentFrequency(int minDocumentFrequency) {
+		this.minDocumentFrequency = minDocumentFrequency;
+	}
+
+	public double getMaxDocumentFrequency() {
+		return maxDocumentFrequency;
+	}
+
+	/**
+	 * @param maxDocumentFrequency
+	 *            the maximum ratio (0-1) of training documents a term can
+	 *            appear in not to be pruned. Set to 1 to disable.
+	 */
+	public void setMaxDocumentFrequency(double maxDocumentFrequency) {
+		if (maxDocumentFrequency < 0 || maxDocumentFrequency > 1)
+			throw new IllegalArgumentException(
+					"Max document frequency must be a ratio between 0 and 1.");
+		this.maxDocumentFrequency = maxDocumentFrequency;
+	}
+
+	public FeatureSelection getFeatureSelection() {
+		return featureSelection;
+	}
+
+	/**
+	 * @param featureSelection
+	 *            the score used to keep the best
+	 *            {@link RocchioOptions#setFeaturesPerClass(int)} terms of
+	 *            each class.
+	 */
+	public void setFeatureSelection(FeatureSelection featureSelection) {
+		this.featureSelection = featureSelection;
+	}
+
+	public int getFeaturesPerClass() {
+		return featuresPerClass;
+	}
+
+	/**
+	 * @param featuresPerClass
+	 *            the number of terms to keep for each class, by
+	 *            {@link RocchioOptions#setFeatureSelection(FeatureSelection)}
+	 *            score (the vocabulary is their union). Set to 0 to disable.
+	 */
+	public void setFeaturesPerClass(int featuresPerClass) {
+		this.featuresPerClass = featuresPerClass;
+	}
+
+	public int getMaxVocabularySize() {
+		return maxVocabularySize;
+	}
+
+	/**
+	 * @param maxVocabularySize
+	 *            the maximum number of terms to keep, the ones with the
+	 *            highest document frequency. Set to 0 to disable.
+	 */
+	public void setMaxVocabularySize(int maxVocabularySize) {
+		this.maxVocabularySize = maxVocabularySize;
+	}
+
+	public int getHashingWidth() {
+		return hashingWidth;
+	}
+
+	/**
+	 * @param hashingWidth
+	 *            the number of features to hash terms into (see
+	 *            {@link FeatureHasher}), instead of using a term dictionary.
+	 *            Set to 0 to disable. Models with hashed features cannot be
+	 *            saved (see {@link RocchioClassifier#save(java.io.File)}).
+	 */
+	public void setHashingWidth(int hashingWidth) {
+		if (hashingWidth < 0)
+			throw new IllegalArgumentException(
+					"Hashing width must not be negative.");
+		this.hashingWidth = hashingWidth;
+	}
+
+	public Parallel getParallel() {
+		return parallel;
+	}
+
+	/**
+	 * @param parallel
+	 *            the pool to run parallel operations on, shared between
+	 *            classifiers and not shut down by them. If null (default),
+	 *            each classifier creates its own pool, with
+	 *            {@link RocchioOptions#setParallelism(int)} threads.
+	 */
+	public void setParallel(Parallel parallel) {
+		this.parallel = parallel;
+	}
+}
@@ -0,0 +1,244 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running statistics of a Rocchio training set, indexed by term id (see
+ * {@link TermDictionary}): the document frequency of each term and, for each
+ * class, the document frequency of each term and the sum of its documents
+ * Term-Frequency.<br/>
+ * Being independent from IDF values, they can be updated incrementally when
+ * documents are added or removed, and class weights can be computed from them
+ * at any time.
+ *
+ */
+public class RocchioStatistics {
+
+	private int documentCount;
+	private int[] documentFrequencies = new int[0];
+	private Map<String, ClassStatistics> classes = new HashMap<String, ClassStatistics>();
+
+	/**
+	 * Statistics of the documents of a single class.
+	 */
+	public static class ClassStatistics {
+		private int documentCount;
+		private int[] documentFrequencies = new int[0];
+		private double[] termFrequencySums = new double[0];
+
+		public int getDocumentCount() {
+			return documentCount;
+		}
+
+		/**
+		 * Returns the number of documents of the class containing the given
+		 * term id.
+		 *
+		 * @param id
+		 * @return
+		 */
+		public int getDocumentFrequency(int id) {
+			return id < documentFrequencies.length ? documentFrequencies[id]
+					: 0;
+		}
+
+		/**
+		 * Returns the sum of the documents Term-Frequency, indexed by term id.
+		 * Terms with an id beyond the array length have a sum of 0.
+		 *
+		 * @return
+		 */
+		public double[] getTermFrequencySums() {
+			return termFrequencySums;
+		}
+
+		/**
+		 * Adds (or removes, with a negative sign) a document to the class.
+		 *
+		 * @param termFrequencies
+		 *            the Term-Frequency of the document.
+		 * @param sign
+		 *            1 to add the document, -1 to remove it.
+		 */
+		public void add(SparseVector termFrequencies, int sign) {
+			documentCount += sign;
+
+			int size = termFrequencies.size();
+			if (size > 0
+					&& termFrequencies.getIndex(size - 1) >= termFrequencySums.length) {
+				int length = grow(termFrequencySums.length,
+						termFrequencies.getIndex(size - 1));
+				termFrequencySums = Arrays.copyOf(termFrequencySums, length);
+				documentFrequencies = Arrays.copyOf(documentFrequencies, length);
+			}
+
+			for (int i = 0; i < size; i++) {
+				termFrequencySums[termFrequencies.getIndex(i)] += sign
+						* termFrequencies.getValue(i);
+				documentFrequencies[termFrequencies.getIndex(i)] += sign;
+			}
+		}
+	}
+
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	public void incrementDocumentCount(int count) {
+		documentCount += count;
+	}
+
+	/**
+	 * Returns the number of documents containing the given term id.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public int getDocumentFrequency(int id) {
+		return id < documentFrequencies.length ? documentFrequencies[id] : 0;
+	}
+
+	public void incrementDocumentFrequency(int id, int count) {
+		if (id >= documentFrequencies.length)
+			documentFrequencies = Arrays.copyOf(documentFrequencies,
+					grow(documentFrequencies.length, id));
+		documentFrequencies[id] += count;
+	}
+
+	/**
+	 * Returns the statistics of each class, by class name.
+	 *
+	 * @return
+	 */
+	public Map<String, ClassStatistics> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Returns the statistics of the given class, creating them if missing.
+	 *
+	 * @param category
+	 * @return
+	 */
+	public ClassStatistics getClassStatistics(String category) {
+		ClassStatistics clazz = classes.get(category);
+		if (clazz == null) {
+			clazz = new ClassStatistics();
+			classes.put(category, clazz);
+		}
+		return clazz;
+	}
+
+	/**
+	 * Adds a document to the statistics.
+	 *
+	 * @param category
+	 *            the document category.
+	 * @param termFrequencies
+	 *            the Term-Frequency of all the document terms.
+	 */
+	public void add(String category, SparseVector termFrequencies) {
+		update(category, termFrequencies, 1);
+	}
+
+	/**
+	 * Removes a document from the statistics. The document MUST have been
+	 * added before, with the same category and terms.
+	 *
+	 * @param category
+	 *            the document category.
+	 * @param termFrequencies
+	 *            the Term-Frequency of all the document terms.
+	 * @throws IllegalArgumentException
+	 *             if the category is unknown, or if the document cannot have
+	 *             been added (see
+	 *             {@link RocchioStatistics#removeAll(List, List)}).
+	 */
+	public void remove(String category, SparseVector termFrequencies) {
+		removeAll(Collections.singletonList(category),
+				Collections.singletonList(termFrequencies));
+	}
+
+	/**
+	 * Removes the given documents from the statistics. The documents MUST
+	 * have been added before, with the same categories and terms.<br/>
+	 * The whole batch is checked before updating anything: either all the
+	 * documents are removed, or none.
+	 *
+	 * @param categories
+	 *            the category of each document.
+	 * @param termFrequencies
+	 *            the Term-Frequency of all the terms of each document.
+	 * @throws IllegalArgumentException
+	 *             if a category is unknown, or if removing the documents would
+	 *             make the document count of a class, or the document
+	 *             frequency of a term, negative (i.e. some documents have not
+	 *             been added).
+	 */
+	public void removeAll(List<String> categories,
+			List<SparseVector> termFrequencies) {
+		if (categories.size() != termFrequencies.size())
+			throw new IllegalArgumentException(String.format(
+					"%d categories for %d documents.", categories.size(),
+					termFrequencies.size()));
+
+		// Documents and document frequencies removed from each class and
+		// from the whole set
+		Map<String, Integer> classCounts = new HashMap<String, Integer>();
+		Map<String, int[]> classFrequencies = new HashMap<String, int[]>();
+		int[] frequencies = new int[documentFrequencies.length];
+		for (int d = 0; d < categories.size(); d++) {
+			String category = categories.get(d);
+			ClassStatistics clazz = classes.get(category);
+			if (clazz == null)
+				throw new IllegalArgumentException(String.format(
+						"Unknown category '%s'.", category));
+
+			Integer count = classCounts.get(category);
+			count = count == null ? 1 : count + 1;
+			if (count > clazz.documentCount)
+				throw new IllegalArgumentException(String.format(
+						"Removing more than the %d documents of category '%s'.",
+						clazz.documentCount, category));
+			classCounts.put(category, count);
+
+			int[] removed = classFrequencies.get(category);
+			if (removed == null) {
+				removed = new int[clazz.documentFrequencies.length];
+				classFrequencies.put(category, removed);
+			}
+			SparseVector vector = termFrequencies.get(d);
+			for (int i = 0; i < vector.size(); i++) {
+				int id = vector.getIndex(i);
+				if (id >= removed.length
+						|| ++removed[id] > clazz.documentFrequencies[id]
+						|| ++frequencies[id] > documentFrequencies[id])
+					throw new IllegalArgumentException(String.format(
+							"Removing more documents with term %d than added to category '%s'.",
+							id, category));
+			}
+		}
+
+		for (int d = 0; d < categories.size(); d++)
+			update(categories.get(d), termFrequencies.get(d), -1);
+		for (String category : classCounts.keySet())
+			if (classes.get(category).getDocumentCount() <= 0)
+				classes.remove(category);
+	}
+
+	private void update(String category, SparseVector termFrequencies,
+			int sign) {
+		documentCount += sign;
+		for (int i = 0; i < termFrequencies.size(); i++)
+			incrementDocumentFrequency(termFrequencies.getIndex(i), sign);
+		getClassStatistics(category).add(termFrequencies, sign);
+	}
+
+	private static int grow(int length, int index) {
+		return Math.max(index + 1, length + (length >> 1));
+	}
+}
@@ -0,0 +1,207 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A sparse vector of term weights, holding only non-zero entries as sorted
+ * term ids (see {@link TermDictionary}) and their values.
+ *
+ */
+public class SparseVector {
+
+	public static final SparseVector EMPTY = new SparseVector(new int[0],
+			new double[0]);
+
+	private final int[] indexes;
+	private final double[] values;
+
+	/**
+	 * Creates a vector with the given entries.
+	 *
+	 * @param indexes
+	 *            the term ids, MUST be sorted in ascending order and unique.
+	 * @param values
+	 *            the values related to the term ids.
+	 */
+	public SparseVector(int[] indexes, double[] values) {
+		if (indexes.length != values.length)
+			throw new IllegalArgumentException(
+					"Indexes and values must have the same length.");
+
+		this.indexes = indexes;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a vector from the first <i>size</i> entries of the given arrays,
+	 * which can be in any order (term ids MUST be unique though).
+	 *
+	 * @param indexes
+	 * @param values
+	 * @param size
+	 * @return
+	 */
+	public static SparseVector create(int[] indexes, double[] values, int size) {
+		// Sort entries by term id, keeping the original position in the low
+		// bits
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++)
+			keys[i] = ((long) indexes[i] << 32) | i;
+		Arrays.sort(keys);
+
+		int[] sortedIndexes = new int[size];
+		double[] sortedValues = new double[size];
+		for (int i = 0; i < size; i++) {
+			sortedIndexes[i] = (int) (keys[i] >>> 32);
+			sortedValues[i] = values[(int) keys[i]];
+		}
+
+		return new SparseVector(sortedIndexes, sortedValues);
+	}
+
+	/**
+	 * Creates a vector from the non-zero values of the given dense array.
+	 *
+	 * @param dense
+	 * @return
+	 */
+	public static SparseVector fromDense(double[] dense) {
+		int size = 0;
+		for (double value : dense)
+			if (value != 0)
+				size++;
+
+		int[] indexes = new int[size];
+		double[] values = new double[size];
+		int j = 0;
+		for (int i = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				indexes[j] = i;
+				values[j] = dense[i];
+				j++;
+			}
+		}
+
+		return new SparseVector(indexes, values);
+	}
+
+	/**
+	 * Returns the number of non-zero entries.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return indexes.length;
+	}
+
+	public int getIndex(int position) {
+		return indexes[position];
+	}
+
+	public double getValue(int position) {
+		return values[position];
+	}
+
+	/**
+	 * Returns the value of the given term id (0 if missing).
+	 *
+	 * @param index
+	 * @return
+	 */
+	public double get(int index) {
+		int position = Arrays.binarySearch(indexes, index);
+		return position >= 0 ? values[position] : 0;
+	}
+
+	/**
+	 * Returns the dot product with the given vector.<br/>
+	 * If one of the vectors is much smaller than the other (i.e. a document
+	 * against a class), only the entries of the smaller one are looked up in
+	 * the larger one.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public double dot(SparseVector other) {
+		if (indexes.length * 8 < other.indexes.length)
+			return lookupDot(this, other);
+		if (other.indexes.length * 8 < indexes.length)
+			return lookupDot(other, this);
+
+		double sum = 0;
+		int i = 0, j = 0;
+		while (i < indexes.length && j < other.indexes.length) {
+			if (indexes[i] == other.indexes[j])
+				sum += values[i++] * other.values[j++];
+			else if (indexes[i] < other.indexes[j])
+				i++;
+			else
+				j++;
+		}
+		return sum;
+	}
+
+	private static double lookupDot(SparseVector small, SparseVector large) {
+		double sum = 0;
+		int from = 0;
+		for (int i = 0; i < small.indexes.length; i++) {
+			int position = Arrays.binarySearch(large.indexes, from,
+					large.indexes.length, small.indexes[i]);
+			if (position >= 0) {
+				sum += small.values[i] * large.values[position];
+				from = position + 1;
+			} else
+				from = -position - 1;
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the euclidean norm of the vector.
+	 *
+	 * @return
+	 */
+	public double norm() {
+		double sum = 0;
+		for (double value : values)
+			sum += value * value;
+		return Math.sqrt(sum);
+	}
+
+	/**
+	 * Adds the vector values to the given dense array (indexed by term id).
+	 *
+	 * @param dense
+	 */
+	public void addTo(double[] dense) {
+		for (int i = 0; i < indexes.length; i++)
+			dense[indexes[i]] += values[i];
+	}
+
+	/**
+	 * Returns the vector as a Map of Term,Value (i.e. for debug purposes).
+	 *
+	 * @param dictionary
+	 *            the dictionary to resolve term ids with.
+	 * @return
+	 */
+	public Map<String, Double> toMap(TermDictionary dictionary) {
+		Map<String, Double> map = new HashMap<String, Double>();
+		for (int i = 0; i < indexes.length; i++)
+			map.put(dictionary.getTerm(indexes[i]), values[i]);
+		return map;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < indexes.length; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(indexes[i]).append('=').append(values[i]);
+		}
+		return sb.append('}').toString();
+	}
+}
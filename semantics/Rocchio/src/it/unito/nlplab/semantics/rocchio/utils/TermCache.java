@@ -0,0 +1,203 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A persistent cache of document terms (i.e. the result of lemmatization or
+ * WSD), stored in a compact binary file so that repeated runs can skip NLP
+ * processing.<br/>
+ * Entries are keyed by document path and are valid only as long as the
+ * document modification time does not change. The whole cache is valid only
+ * for the configuration (i.e. extraction version, language, text cleaner,
+ * WSD) it was created with.<br/>
+ * The cache is thread-safe.
+ *
+ */
+public class TermCache {
+
+	private static final Logger LOG = LogManager.getLogger(TermCache.class);
+
+	private static final int MAGIC = 0x5445524D;
+	private static final int VERSION = 1;
+
+	private File file;
+	private String configuration;
+	private Map<String, Entry> entries = new HashMap<String, Entry>();
+	private boolean modified;
+
+	private static class Entry {
+		long lastModified;
+		String[] terms;
+	}
+
+	/**
+	 * Opens the cache in the given file, loading its entries if the file
+	 * exists and was created with the same configuration.
+	 *
+	 * @param file
+	 * @param configuration
+	 *            a description of how terms are extracted (i.e. extraction
+	 *            version, language, text cleaner, WSD).
+	 */
+	public TermCache(File file, String configuration) {
+		this.file = file;
+		this.configuration = configuration;
+
+		if (file.exists())
+			try {
+				load();
+			} catch (IOException e) {
+				LOG.warn(String.format(
+						"Term cache '%s' is not readable, ignoring it: %s",
+						file, e));
+				entries.clear();
+			}
+	}
+
+	private void load() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException("Not a term cache file.");
+			if (!configuration.equals(in.readUTF())) {
+				LOG.info(String.format(
+						"Term cache '%s' has a different configuration, ignoring it",
+						file));
+				return;
+			}
+
+			int size = readCount(in, 2 + 8 + 4);
+			for (int i = 0; i < size; i++) {
+				String path = in.readUTF();
+				Entry entry = new Entry();
+				entry.lastModified = in.readLong();
+				entry.terms = new String[readCount(in, 2)];
+				for (int t = 0; t < entry.terms.length; t++)
+					entry.terms[t] = in.readUTF();
+				entries.put(path, entry);
+			}
+			if (in.read() != -1)
+				throw new IOException("Trailing data in term cache file.");
+
+			LOG.info(String.format("Term cache '%s' loaded, %d documents",
+					file, size));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a count of items, checking that the file is large enough to hold
+	 * them (so that a corrupt count cannot allocate a huge array).
+	 *
+	 * @param in
+	 * @param itemSize
+	 *            the minimum size of an item, in bytes.
+	 * @return
+	 * @throws IOException
+	 *             if the count is negative or too large.
+	 */
+	private int readCount(DataInputStream in, int itemSize) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || (long) count * itemSize > file.length())
+			throw new IOException(String.format(
+					"Bad count %d in term cache file.", count));
+		return count;
+	}
+
+	/**
+	 * Returns the cached terms of the given document file.
+	 *
+	 * @param docFile
+	 * @return the terms, or null if missing or outdated.
+	 */
+	public synchronized HashSet<String> get(File docFile) {
+		Entry entry = entries.get(docFile.getAbsolutePath());
+		if (entry == null || entry.lastModified != docFile.lastModified())
+			return null;
+
+		HashSet<String> terms = new HashSet<String>(
+				entry.terms.length * 4 / 3 + 1);
+		for (String term : entry.terms)
+			terms.add(term);
+		return terms;
+	}
+
+	/**
+	 * Stores the terms of the given document file.
+	 *
+	 * @param docFile
+	 * @param terms
+	 */
+	public synchronized void put(File docFile, HashSet<String> terms) {
+		Entry entry = new Entry();
+		entry.lastModified = docFile.lastModified();
+		entry.terms = terms.toArray(new String[terms.size()]);
+		entries.put(docFile.getAbsolutePath(), entry);
+		modified = true;
+	}
+
+	/**
+	 * Writes the cache to its file, if it has been modified. The file is
+	 * replaced atomically, only once completely written.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		if (!modified)
+			return;
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null)
+			parent.mkdirs();
+
+		File tmp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tmp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(configuration);
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().lastModified);
+				out.writeInt(entry.getValue().terms.length);
+				for (String term : entry.getValue().terms)
+					out.writeUTF(term);
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tmp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		modified = false;
+
+		LOG.info(String.format("Term cache '%s' saved, %d documents", file,
+				entries.size()));
+	}
+}
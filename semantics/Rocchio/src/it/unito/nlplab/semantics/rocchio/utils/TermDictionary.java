@@ -0,0 +1,14 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+/**
+ * The dictionary of the terms of a collection (see
+ * {@link it.unito.nlplap.semantics.utils.TermDictionary}), mapping each term
+ * to a dense integer id. It is shared by the {@link SparseVector}s of
+ * documents and classes, so that they can refer to terms by id.<br/>
+ * It only holds the terms of the collection, so that ids can be used as
+ * vector indexes.
+ *
+ */
+public class TermDictionary extends
+		it.unito.nlplap.semantics.utils.TermDictionary {
+}
@@ -0,0 +1,344 @@
+package it.unito.nlplab.semantics.rocchio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import it.unito.nlplab.semantics.rocchio.utils.ClassScore;
+import it.unito.nlplab.semantics.rocchio.utils.ClassificationResult;
+import it.unito.nlplab.semantics.rocchio.utils.Document;
+import it.unito.nlplab.semantics.rocchio.utils.FeatureSelection;
+import it.unito.nlplab.semantics.rocchio.utils.RocchioOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RocchioClassifierTest {
+
+	private static final double DELTA = 1e-10;
+	private static final int CLASS_COUNT = 4;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<Document> training;
+	private List<Document> test;
+	private List<RocchioClassifier> classifiers = new ArrayList<RocchioClassifier>();
+
+	@Before
+	public void setUp() {
+		Random random = new Random(42);
+		training = createDocuments(random, 40, CLASS_COUNT);
+		test = createDocuments(random, 10, CLASS_COUNT);
+	}
+
+	@After
+	public void tearDown() {
+		for (RocchioClassifier classifier : classifiers)
+			classifier.close();
+	}
+
+	@Test
+	public void testAddDocumentsMatchesTraining() {
+		int half = training.size() / 2;
+		RocchioClassifier all = train(training, createOptions());
+		RocchioClassifier incremental = train(training.subList(0, half),
+				createOptions());
+		incremental.addDocuments(copy(training.subList(half,
+				training.size())));
+
+		assertSameResults(classifyEach(all), classifyEach(incremental));
+	}
+
+	@Test
+	public void testRemoveDocumentsUndoesAddDocuments() {
+		// Some documents of a new class too
+		List<Document> extra = createDocuments(new Random(7), 5,
+				CLASS_COUNT + 1);
+		RocchioClassifier all = train(training, createOptions());
+		RocchioClassifier updated = train(training, createOptions());
+		updated.addDocuments(copy(extra));
+		updated.removeDocuments(copy(extra));
+
+		assertSameResults(classifyEach(all), classifyEach(updated));
+	}
+
+	@Test
+	public void testRemoveDocumentsNotAdded() {
+		List<Document> extra = createDocuments(new Random(7), 5,
+				CLASS_COUNT + 1);
+		RocchioClassifier all = train(training, createOptions());
+		RocchioClassifier updated = train(training, createOptions());
+		try {
+			updated.removeDocuments(copy(extra));
+			fail("Removed documents never added.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+
+		assertSameResults(classifyEach(all), classifyEach(updated));
+	}
+
+	@Test
+	public void testClassificationPaths() throws IOException {
+		RocchioClassifier plain = train(training, createOptions());
+		RocchioOptions indexedOptions = createOptions();
+		indexedOptions.setInvertedIndex(true);
+		RocchioClassifier indexed = train(training, indexedOptions);
+
+		File file = folder.newFile("model.bin");
+		plain.save(file);
+		RocchioClassifier loaded = register(RocchioClassifier.load(file));
+		RocchioClassifier mapped = register(new MappedRocchioClassifier(file));
+
+		List<ClassificationResult> expected = classifyEach(plain);
+		for (RocchioClassifier classifier : new RocchioClassifier[] { plain,
+				indexed, loaded, mapped }) {
+			assertSameResults(expected, classifyEach(classifier));
+			assertSameResults(expected,
+					classifier.classifyAll(copy(test), 0));
+		}
+	}
+
+	@Test
+	public void testHashedClassification() throws IOException {
+		RocchioOptions options = createOptions();
+		options.setHashingWidth(1 << 12);
+		RocchioClassifier hashed = train(training, options);
+		RocchioOptions indexedOptions = createOptions();
+		indexedOptions.setHashingWidth(1 << 12);
+		indexedOptions.setInvertedIndex(true);
+		RocchioClassifier indexed = train(training, indexedOptions);
+
+		List<ClassificationResult> expected = classifyEach(hashed);
+		for (RocchioClassifier classifier : new RocchioClassifier[] { hashed,
+				indexed }) {
+			assertSameResults(expected, classifyEach(classifier));
+			assertSameResults(expected, classifier.classifyAll(copy(test), 0));
+		}
+
+		// Few collisions: same decisions as with the dictionary
+		List<ClassificationResult> plain = classifyEach(train(training,
+				createOptions()));
+		for (int i = 0; i < test.size(); i++) {
+			assertEquals(test.get(i).getCategory(), expected.get(i)
+					.getBestClass());
+			assertEquals(plain.get(i).getBestClass(), expected.get(i)
+					.getBestClass());
+		}
+
+		try {
+			hashed.save(folder.newFile("hashed.bin"));
+			fail("Saved a model with hashed features.");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testTiesBrokenAlike() {
+		// Classes with the same documents have the same score
+		List<Document> documents = new ArrayList<Document>();
+		for (String category : new String[] { "a", "b", "c", "d", "e" })
+			documents.add(createDocument(category, "cat", "dog"));
+		documents.add(createDocument("f", "fish", "bird"));
+		RocchioClassifier classifier = train(documents, new RocchioOptions());
+
+		Document doc = createDocument(null, "cat", "dog");
+		String best = classifier.classify(
+				classifier.computeDocumentFeatures(new Document(doc)))
+				.getBestClass();
+		assertNotNull(best);
+		for (int topK : new int[] { 0, 1, 3 })
+			assertEquals(best, classifier.classify(
+					classifier.computeDocumentFeatures(new Document(doc)),
+					topK).getBestClass());
+		assertEquals(best,
+				classifier.classifyAll(Arrays.asList(new Document(doc)))
+						.get(0).getBestClass());
+	}
+
+	@Test
+	public void testSelectTopTerms() {
+		double[] scores = { 1, 3, 3, 5, 3, 9 };
+		BitSet candidates = new BitSet();
+		candidates.set(0, 5);
+
+		// Ties broken by lower id, term 5 not a candidate
+		assertEquals(toBitSet(1, 2, 3),
+				RocchioClassifier.selectTopTerms(candidates, scores, 3));
+		assertEquals(toBitSet(3),
+				RocchioClassifier.selectTopTerms(candidates, scores, 1));
+		assertEquals(candidates,
+				RocchioClassifier.selectTopTerms(candidates, scores, 10));
+	}
+
+	@Test
+	public void testVocabularySelection() {
+		// Each class has a term in all its documents ("cat", "car", "sun"),
+		// one in 2 of them and "pet" in one document of each class
+		List<Document> documents = new ArrayList<Document>();
+		String[][] classTerms = { { "a", "cat", "dog" }, { "b", "car", "bus" },
+				{ "c", "sun", "rain" } };
+		for (String[] terms : classTerms) {
+			documents.add(createDocument(terms[0], terms[1], terms[2]));
+			documents.add(createDocument(terms[0], terms[1], terms[2]));
+			documents.add(createDocument(terms[0], terms[1], "pet"));
+		}
+
+		for (FeatureSelection featureSelection : new FeatureSelection[] {
+				FeatureSelection.CHI_SQUARE, FeatureSelection.INFORMATION_GAIN }) {
+			RocchioOptions options = new RocchioOptions();
+			options.setFeatureSelection(featureSelection);
+			options.setFeaturesPerClass(1);
+			assertEquals(featureSelection.toString(), new HashSet<String>(
+					Arrays.asList("cat", "car", "sun")),
+					getVocabulary(train(documents, options)));
+
+			options.setFeaturesPerClass(2);
+			assertEquals(featureSelection.toString(), new HashSet<String>(
+					Arrays.asList("cat", "dog", "car", "bus", "sun", "rain")),
+					getVocabulary(train(documents, options)));
+
+			// Then the most frequent of them
+			options.setMaxVocabularySize(3);
+			assertEquals(featureSelection.toString(), new HashSet<String>(
+					Arrays.asList("cat", "car", "sun")),
+					getVocabulary(train(documents, options)));
+		}
+
+		// The most frequent terms only
+		RocchioOptions options = new RocchioOptions();
+		options.setMaxVocabularySize(4);
+		assertEquals(
+				new HashSet<String>(Arrays.asList("cat", "car", "sun", "pet")),
+				getVocabulary(train(documents, options)));
+	}
+
+	/**
+	 * Options exercising IDF and document frequency pruning.
+	 */
+	private static RocchioOptions createOptions() {
+		RocchioOptions options = new RocchioOptions();
+		options.setPruningThreshold(0.1);
+		options.setMinDocumentFrequency(2);
+		options.setParallelism(2);
+		return options;
+	}
+
+	private RocchioClassifier train(List<Document> documents,
+			RocchioOptions options) {
+		return register(new RocchioClassifier(copy(documents), options));
+	}
+
+	private RocchioClassifier register(RocchioClassifier classifier) {
+		classifiers.add(classifier);
+		return classifier;
+	}
+
+	private static Set<String> getVocabulary(RocchioClassifier classifier) {
+		classifier.materialize();
+		BitSet ids = classifier.vocabulary;
+		Set<String> vocabulary = new HashSet<String>();
+		for (int t = ids.nextSetBit(0); t >= 0; t = ids.nextSetBit(t + 1))
+			vocabulary.add(classifier.getFeatureVector().getTerm(t));
+		return vocabulary;
+	}
+
+	private static BitSet toBitSet(int... ids) {
+		BitSet bits = new BitSet();
+		for (int id : ids)
+			bits.set(id);
+		return bits;
+	}
+
+	/**
+	 * Computes features and classifies each test document, one at a time.
+	 */
+	private List<ClassificationResult> classifyEach(
+			RocchioClassifier classifier) {
+		List<ClassificationResult> results = new ArrayList<ClassificationResult>();
+		for (Document doc : copy(test))
+			results.add(classifier.classify(
+					classifier.computeDocumentFeatures(doc), 0));
+		return results;
+	}
+
+	private static void assertSameResults(
+			List<ClassificationResult> expected,
+			List<ClassificationResult> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getBestClass(), actual.get(i)
+					.getBestClass());
+			assertEquals(expected.get(i).getBestScore(), actual.get(i)
+					.getBestScore(), DELTA);
+
+			Map<String, Double> scores = toMap(expected.get(i));
+			assertEquals(scores.keySet(), toMap(actual.get(i)).keySet());
+			for (Map.Entry<String, Double> score : toMap(actual.get(i))
+					.entrySet())
+				assertEquals(score.getKey(), scores.get(score.getKey()),
+						score.getValue(), DELTA);
+		}
+	}
+
+	private static Map<String, Double> toMap(ClassificationResult result) {
+		Map<String, Double> scores = new HashMap<String, Double>();
+		for (ClassScore score : result.getRanking())
+			scores.put(score.getClazz(), score.getScore());
+		return scores;
+	}
+
+	/**
+	 * Copies the given documents without their features, so that each
+	 * classifier computes its own.
+	 */
+	private static List<Document> copy(List<Document> documents) {
+		List<Document> copies = new ArrayList<Document>();
+		for (Document doc : documents)
+			copies.add(new Document(doc));
+		return copies;
+	}
+
+	private static Document createDocument(String category, String... terms) {
+		return new Document(category, category, null, new HashSet<String>(
+				Arrays.asList(terms)), category);
+	}
+
+	/**
+	 * Creates documents of the given number of classes, in turn, mixing terms
+	 * of their own class and terms common to all the classes.
+	 */
+	private static List<Document> createDocuments(Random random,
+			int documentsPerClass, int classCount) {
+		List<Document> documents = new ArrayList<Document>();
+		for (int d = 0; d < documentsPerClass; d++) {
+			for (int c = 0; c < classCount; c++) {
+				HashSet<String> terms = new HashSet<String>();
+				while (terms.size() < 10)
+					terms.add("class" + c + "-" + random.nextInt(30));
+				while (terms.size() < 15)
+					terms.add("common-" + random.nextInt(30));
+				String name = "doc" + random.nextInt();
+				documents.add(new Document(name, name, null, terms, "class"
+						+ c));
+			}
+		}
+		return documents;
+	}
+}
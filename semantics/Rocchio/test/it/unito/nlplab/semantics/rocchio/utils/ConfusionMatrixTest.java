@@ -0,0 +1,63 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfusionMatrixTest {
+
+	private ConfusionMatrix matrix;
+
+	@Before
+	public void setUp() {
+		matrix = new ConfusionMatrix();
+		matrix.add("cats", "cats");
+		matrix.add("cats", "dogs");
+		matrix.add("cats", null);
+		matrix.add("dogs", "dogs");
+		// Assigned, but never the correct class
+		matrix.add("dogs", "fish");
+	}
+
+	@Test
+	public void testCounts() {
+		assertEquals(5, matrix.getTotal());
+		assertEquals(2, matrix.getCorrect());
+		assertEquals(1, matrix.getCount("cats", null));
+		assertEquals(1, matrix.getUnassigned());
+		assertEquals(0.5, matrix.getPrecision("dogs"), 0);
+		assertEquals(1.0 / 3, matrix.getRecall("cats"), 0);
+		assertEquals(0, matrix.getPrecision("fish"), 0);
+	}
+
+	@Test
+	public void testGetClassesIncludesAssigned() {
+		assertEquals(new TreeSet<String>(Arrays.asList("cats", "dogs",
+				"fish")), matrix.getClasses());
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("\tcats\tdogs\tfish\t(none)\n" + "cats\t1\t1\t0\t1\n"
+				+ "dogs\t0\t1\t1\t0\n" + "fish\t0\t0\t0\t0",
+				matrix.toString());
+
+		ConfusionMatrix assigned = new ConfusionMatrix();
+		assigned.add("cats", "cats");
+		assertEquals("\tcats\ncats\t1", assigned.toString());
+	}
+
+	@Test
+	public void testAddAll() {
+		ConfusionMatrix total = new ConfusionMatrix();
+		total.addAll(matrix);
+		total.addAll(matrix);
+		assertEquals(10, total.getTotal());
+		assertEquals(2, total.getUnassigned());
+		assertEquals(matrix.getClasses(), total.getClasses());
+	}
+}
@@ -0,0 +1,73 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FeatureHasherTest {
+
+	@Test
+	public void testIndexAndSign() {
+		FeatureHasher hasher = new FeatureHasher(100);
+		for (int i = 0; i < 1000; i++) {
+			String term = "term" + i;
+			int index = hasher.getIndex(term);
+			assertTrue(index >= 0 && index < 100);
+			assertEquals(index, hasher.getIndex(new String(term)));
+			int sign = hasher.getSign(term);
+			assertTrue(sign == 1 || sign == -1);
+		}
+	}
+
+	@Test
+	public void testTransformCountsTerms() {
+		FeatureHasher hasher = new FeatureHasher(1 << 20);
+		SparseVector vector = hasher.transform(Arrays.asList("cat", "dog",
+				"cat"));
+		assertEquals(2, vector.size());
+		assertEquals(2 * hasher.getSign("cat"),
+				vector.get(hasher.getIndex("cat")), 0);
+		assertEquals(hasher.getSign("dog"),
+				vector.get(hasher.getIndex("dog")), 0);
+		for (int i = 1; i < vector.size(); i++)
+			assertTrue(vector.getIndex(i - 1) < vector.getIndex(i));
+	}
+
+	@Test
+	public void testTransformCancelsCollisions() {
+		// With a single feature, terms of opposite sign cancel out
+		FeatureHasher hasher = new FeatureHasher(1);
+		List<String> positive = new ArrayList<String>();
+		List<String> negative = new ArrayList<String>();
+		for (int i = 0; positive.isEmpty() || negative.isEmpty(); i++) {
+			String term = "term" + i;
+			if (hasher.getSign(term) > 0)
+				positive.add(term);
+			else
+				negative.add(term);
+		}
+
+		assertEquals(0, hasher.transform(
+				Arrays.asList(positive.get(0), negative.get(0))).size());
+		SparseVector vector = hasher.transform(Arrays.asList(positive.get(0),
+				negative.get(0), positive.get(0)));
+		assertEquals(1, vector.size());
+		assertEquals(1, vector.get(0), 0);
+	}
+
+	@Test
+	public void testTransformEmpty() {
+		assertEquals(0, new FeatureHasher(10).transform(
+				new ArrayList<String>()).size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidWidth() {
+		new FeatureHasher(0);
+	}
+}
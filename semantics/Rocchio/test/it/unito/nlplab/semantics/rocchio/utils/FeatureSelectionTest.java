@@ -0,0 +1,46 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FeatureSelectionTest {
+
+	private static final double DELTA = 1e-12;
+
+	// 10 documents: the term is in 3 of the 4 documents of the class and in 1
+	// of the 6 documents of other classes
+	private static final double A = 3, B = 1, C = 1, D = 5;
+
+	@Test
+	public void testChiSquare() {
+		// 10 * (3 * 5 - 1 * 1)^2 / (4 * 6 * 4 * 6)
+		assertEquals(1960.0 / 576,
+				FeatureSelection.CHI_SQUARE.score(A, B, C, D), DELTA);
+		// Independent term and class
+		assertEquals(0, FeatureSelection.CHI_SQUARE.score(2, 2, 2, 2), DELTA);
+		// Term in every document
+		assertEquals(0, FeatureSelection.CHI_SQUARE.score(4, 6, 0, 0), DELTA);
+	}
+
+	@Test
+	public void testInformationGain() {
+		// Sum of P(t, c) * log(P(t, c) / (P(t) * P(c))) over the 4 cells
+		double expected = 0.3 * Math.log(0.3 / (0.4 * 0.4)) + 0.1
+				* Math.log(0.1 / (0.4 * 0.6)) + 0.1
+				* Math.log(0.1 / (0.6 * 0.4)) + 0.5
+				* Math.log(0.5 / (0.6 * 0.6));
+		assertEquals(expected,
+				FeatureSelection.INFORMATION_GAIN.score(A, B, C, D), DELTA);
+		assertEquals(0, FeatureSelection.INFORMATION_GAIN.score(2, 2, 2, 2),
+				DELTA);
+		// Term in every document (empty cells)
+		assertEquals(0, FeatureSelection.INFORMATION_GAIN.score(4, 6, 0, 0),
+				DELTA);
+	}
+
+	@Test
+	public void testNone() {
+		assertEquals(0, FeatureSelection.NONE.score(A, B, C, D), 0);
+	}
+}
@@ -0,0 +1,209 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTest {
+
+	private Parallel parallel;
+
+	@Before
+	public void setUp() {
+		parallel = new Parallel(4);
+	}
+
+	@After
+	public void tearDown() {
+		parallel.shutdown();
+	}
+
+	@Test
+	public void testForPerformsEachIndexOnce() {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+		parallel.For(counts.length(), new Parallel.IndexOperation() {
+			@Override
+			public void perform(int index) {
+				counts.incrementAndGet(index);
+			}
+		});
+		for (int i = 0; i < counts.length(); i++)
+			assertEquals(1, counts.get(i));
+	}
+
+	@Test
+	public void testForElements() {
+		List<Integer> elements = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++)
+			elements.add(i);
+
+		final AtomicIntegerArray values = new AtomicIntegerArray(100);
+		parallel.For(elements, new Parallel.Operation<Integer>() {
+			@Override
+			public void perform(Integer element, int index, int total) {
+				assertEquals(100, total);
+				values.addAndGet(index, element + 1);
+			}
+		});
+		for (int i = 0; i < values.length(); i++)
+			assertEquals(i + 1, values.get(i));
+	}
+
+	@Test
+	public void testRuntimeExceptionPropagates() {
+		final IllegalStateException failure = new IllegalStateException();
+		try {
+			parallel.For(1000, new Parallel.IndexOperation() {
+				@Override
+				public void perform(int index) {
+					if (index == 500)
+						throw failure;
+				}
+			});
+			fail("Exception not propagated.");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void testErrorPropagates() {
+		final Error failure = new Error();
+		try {
+			parallel.For(1000, new Parallel.IndexOperation() {
+				@Override
+				public void perform(int index) {
+					if (index == 500)
+						throw failure;
+				}
+			});
+			fail("Error not propagated.");
+		} catch (Error e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void testCheckedExceptionPropagates() {
+		final IOException failure = new IOException();
+		try {
+			parallel.For(1000, new Parallel.IndexOperation() {
+				@Override
+				public void perform(int index) {
+					if (index == 500)
+						ParallelTest.<RuntimeException> sneakyThrow(failure);
+				}
+			});
+			fail("Exception not propagated.");
+		} catch (RuntimeException e) {
+			assertSame(failure, e.getCause());
+		}
+	}
+
+	@Test
+	public void testFailureStopsLoop() {
+		Parallel sequential = new Parallel(1);
+		try {
+			Parallel.Loop loop = sequential.start(1000,
+					new Parallel.IndexOperation() {
+						@Override
+						public void perform(int index) {
+							throw new IllegalStateException();
+						}
+					}, null);
+			try {
+				loop.join();
+				fail("Exception not propagated.");
+			} catch (IllegalStateException e) {
+				assertEquals(0, loop.getCompleted());
+			}
+		} finally {
+			sequential.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		Parallel.Loop loop = parallel.start(1000,
+				new Parallel.IndexOperation() {
+					@Override
+					public void perform(int index) {
+						started.countDown();
+						try {
+							cancelled.await();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}, null);
+
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		loop.cancel();
+		cancelled.countDown();
+		try {
+			loop.join();
+			fail("Cancellation not propagated.");
+		} catch (CancellationException e) {
+			assertTrue(loop.isCancelled());
+			assertTrue(loop.isDone());
+			assertTrue(loop.getCompleted() < loop.getTotal());
+		}
+	}
+
+	@Test
+	public void testCancelAfterCompletion() {
+		Parallel.Loop loop = parallel.start(100,
+				new Parallel.IndexOperation() {
+					@Override
+					public void perform(int index) {
+					}
+				}, null);
+		loop.join();
+		loop.cancel();
+		loop.join();
+		assertEquals(100, loop.getCompleted());
+	}
+
+	@Test
+	public void testProgress() {
+		final AtomicInteger last = new AtomicInteger();
+		parallel.For(1000, new Parallel.IndexOperation() {
+			@Override
+			public void perform(int index) {
+			}
+		}, new Parallel.Progress() {
+			@Override
+			public void update(int completed, int total) {
+				assertEquals(1000, total);
+				int previous;
+				do
+					previous = last.get();
+				while (completed > previous
+						&& !last.compareAndSet(previous, completed));
+			}
+		});
+		assertEquals(1000, last.get());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Throwable> void sneakyThrow(Throwable t)
+			throws T {
+		throw (T) t;
+	}
+}
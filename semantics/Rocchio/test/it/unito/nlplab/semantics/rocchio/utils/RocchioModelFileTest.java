@@ -0,0 +1,134 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import it.unito.nlplap.semantics.utils.CorruptFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RocchioModelFileTest {
+
+	private static final String[] TERMS = { "cat", "the", "dog", "citt\u00e0",
+			"perch\u00e9", "\ud83d\ude00" };
+	private static final String[] CLASS_NAMES = { "animals", "citt\u00e0" };
+
+	private static final CorruptFiles.Loader[] LOADERS = {
+			new CorruptFiles.Loader() {
+				@Override
+				public void load(File file) throws IOException {
+					RocchioModelFile.load(file);
+				}
+			}, new CorruptFiles.Loader() {
+				@Override
+				public void load(File file) throws IOException {
+					new MappedRocchioModel(file);
+				}
+			} };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private TermDictionary terms;
+	private BitSet vocabulary;
+	private double[] idf;
+	private SparseVector[] classVectors;
+	private double[] classNorms;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		terms = new TermDictionary();
+		for (String term : TERMS)
+			terms.add(term);
+
+		// "the" is pruned, the other terms are renumbered
+		vocabulary = new BitSet();
+		vocabulary.set(0, TERMS.length);
+		vocabulary.clear(1);
+		idf = new double[] { 0.5, 0.1, 1.5, 2, 2.5, 3 };
+		classVectors = new SparseVector[] {
+				new SparseVector(new int[] { 0, 2 }, new double[] { 0.7, 0.3 }),
+				new SparseVector(new int[] { 3, 4, 5 }, new double[] { 0.2,
+						0.4, 0.6 }) };
+		classNorms = new double[] { classVectors[0].norm(),
+				classVectors[1].norm() };
+
+		file = folder.newFile("model.bin");
+		RocchioModelFile.save(file, terms, vocabulary, idf, CLASS_NAMES,
+				classVectors, classNorms);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		RocchioModelFile model = RocchioModelFile.load(file);
+
+		assertEquals(TERMS.length - 1, model.getTerms().size());
+		assertArrayEquals(CLASS_NAMES, model.getClassNames());
+		assertArrayEquals(classNorms, model.getClassNorms(), 0);
+		for (int t = vocabulary.nextSetBit(0); t >= 0; t = vocabulary
+				.nextSetBit(t + 1)) {
+			int id = model.getTerms().getId(TERMS[t]);
+			assertEquals(idf[t], model.getIdf()[id], 0);
+		}
+		assertEquals(-1, model.getTerms().getId("the"));
+
+		for (int c = 0; c < CLASS_NAMES.length; c++) {
+			SparseVector vector = model.getClassVectors()[c];
+			assertEquals(classVectors[c].size(), vector.size());
+			for (int i = 0; i < vector.size(); i++) {
+				String term = model.getTerms().getTerm(vector.getIndex(i));
+				assertEquals(classVectors[c].get(terms.getId(term)),
+						vector.getValue(i), 0);
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndMap() throws IOException {
+		RocchioModelFile loaded = RocchioModelFile.load(file);
+		MappedRocchioModel model = new MappedRocchioModel(file);
+
+		assertArrayEquals(CLASS_NAMES, model.getClassNames());
+		assertArrayEquals(classNorms, model.getClassNorms(), 0);
+		assertEquals(loaded.getTerms().size(), model.getTerms().size());
+		for (int id = 0; id < loaded.getTerms().size(); id++) {
+			String term = loaded.getTerms().getTerm(id);
+			assertEquals(id, model.getTermId(term));
+			assertEquals(term, model.getTerm(id));
+			assertEquals(loaded.getIdf()[id], model.getIdf(id), 0);
+		}
+		assertEquals(-1, model.getTermId("the"));
+		assertEquals(-1, model.getTermId("citta"));
+		assertEquals(-1, model.getTermId(""));
+
+		// Dot products against all the stored terms
+		double[] dense = new double[loaded.getTerms().size()];
+		for (int id = 0; id < dense.length; id++)
+			dense[id] = id + 1;
+		SparseVector vector = SparseVector.fromDense(dense);
+		for (int c = 0; c < CLASS_NAMES.length; c++)
+			assertEquals(vector.dot(loaded.getClassVectors()[c]),
+					model.dot(vector, c), 1e-12);
+	}
+
+	@Test
+	public void testRejectsDamagedFile() throws IOException {
+		long length = file.length();
+		CorruptFiles.assertRejectsDamaged(file, new long[] { length - 1,
+				length - 8, length / 2, RocchioModelFile.HEADER_SIZE, 3, 0 },
+				LOADERS);
+	}
+
+	@Test
+	public void testRejectsBadTableSize() throws IOException {
+		CorruptFiles.writeInt(file, 16, 3);
+		CorruptFiles.assertRejected(file, LOADERS);
+	}
+}
@@ -0,0 +1,117 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RocchioStatisticsTest {
+
+	private static final SparseVector CAT = new SparseVector(new int[] { 0,
+			1 }, new double[] { 0.5, 0.5 });
+	private static final SparseVector DOG = new SparseVector(new int[] { 1,
+			2 }, new double[] { 0.25, 0.75 });
+
+	private RocchioStatistics statistics;
+
+	@Before
+	public void setUp() {
+		statistics = new RocchioStatistics();
+		statistics.add("animals", CAT);
+		statistics.add("animals", DOG);
+		statistics.add("pets", DOG);
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		assertEquals(3, statistics.getDocumentCount());
+		assertEquals(1, statistics.getDocumentFrequency(0));
+		assertEquals(3, statistics.getDocumentFrequency(1));
+		assertEquals(2, statistics.getClasses().get("animals")
+				.getDocumentFrequency(1));
+
+		statistics.remove("animals", CAT);
+		assertEquals(2, statistics.getDocumentCount());
+		assertEquals(0, statistics.getDocumentFrequency(0));
+		assertEquals(2, statistics.getDocumentFrequency(1));
+		assertEquals(1, statistics.getClasses().get("animals")
+				.getDocumentCount());
+
+		statistics.remove("pets", DOG);
+		assertFalse(statistics.getClasses().containsKey("pets"));
+	}
+
+	@Test
+	public void testRemoveUnknownCategory() {
+		assertRemoveFails(Arrays.asList("plants"), Arrays.asList(CAT));
+	}
+
+	@Test
+	public void testRemoveNotAdded() {
+		// "pets" has no documents with term 0
+		assertRemoveFails(Arrays.asList("pets"), Arrays.asList(CAT));
+		// Term 3 has never been added
+		assertRemoveFails(Arrays.asList("animals"),
+				Arrays.asList(new SparseVector(new int[] { 3 },
+						new double[] { 1 })));
+	}
+
+	@Test
+	public void testRemoveTooMany() {
+		assertRemoveFails(Arrays.asList("pets", "pets"),
+				Arrays.asList(DOG, DOG));
+		assertRemoveFails(Arrays.asList("animals", "animals"),
+				Arrays.asList(CAT, CAT));
+	}
+
+	@Test
+	public void testRemoveBatchAllOrNone() {
+		// The first document could be removed, the second one not
+		assertRemoveFails(Arrays.asList("animals", "pets"),
+				Arrays.asList(DOG, CAT));
+		assertEquals(2, statistics.getClasses().get("animals")
+				.getDocumentFrequency(1));
+
+		statistics.removeAll(Arrays.asList("animals", "pets"),
+				Arrays.asList(DOG, DOG));
+		assertEquals(1, statistics.getDocumentCount());
+		assertEquals(1, statistics.getDocumentFrequency(1));
+		assertEquals(0, statistics.getDocumentFrequency(2));
+	}
+
+	/**
+	 * Checks that removing the given documents fails, leaving the statistics
+	 * unchanged.
+	 */
+	private void assertRemoveFails(List<String> categories,
+			List<SparseVector> termFrequencies) {
+		int documentCount = statistics.getDocumentCount();
+		int[] frequencies = getDocumentFrequencies();
+		try {
+			statistics.removeAll(categories, termFrequencies);
+			fail("Removed documents never added.");
+		} catch (IllegalArgumentException e) {
+			// Expected
+		}
+		assertEquals(documentCount, statistics.getDocumentCount());
+		assertEquals(2, statistics.getClasses().size());
+		assertArrayEquals(frequencies, getDocumentFrequencies());
+		assertEquals(2, statistics.getClasses().get("animals")
+				.getDocumentCount());
+		assertEquals(1, statistics.getClasses().get("pets")
+				.getDocumentCount());
+	}
+
+	private int[] getDocumentFrequencies() {
+		int[] frequencies = new int[4];
+		for (int id = 0; id < frequencies.length; id++)
+			frequencies[id] = statistics.getDocumentFrequency(id);
+		return frequencies;
+	}
+}
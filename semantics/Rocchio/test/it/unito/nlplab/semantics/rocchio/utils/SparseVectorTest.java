@@ -0,0 +1,104 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseVectorTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void testDot() {
+		SparseVector a = new SparseVector(new int[] { 1, 3, 5 }, new double[] {
+				1, 2, 3 });
+		SparseVector b = new SparseVector(new int[] { 0, 3, 5, 8 },
+				new double[] { 4, 5, 6, 7 });
+		assertEquals(2 * 5 + 3 * 6, a.dot(b), DELTA);
+		assertEquals(a.dot(b), b.dot(a), DELTA);
+		assertEquals(0, a.dot(SparseVector.EMPTY), DELTA);
+		assertEquals(0, SparseVector.EMPTY.dot(a), DELTA);
+	}
+
+	@Test
+	public void testDotRandom() {
+		// Sizes both close to each other (merge) and far apart (lookup)
+		Random random = new Random(42);
+		int[] sizes = { 0, 1, 5, 50, 1000 };
+		for (int size1 : sizes) {
+			for (int size2 : sizes) {
+				double[] dense1 = randomDense(random, 5000, size1);
+				double[] dense2 = randomDense(random, 5000, size2);
+				double expected = 0;
+				for (int i = 0; i < dense1.length; i++)
+					expected += dense1[i] * dense2[i];
+
+				SparseVector v1 = SparseVector.fromDense(dense1);
+				SparseVector v2 = SparseVector.fromDense(dense2);
+				assertEquals(expected, v1.dot(v2), DELTA);
+				assertEquals(expected, v2.dot(v1), DELTA);
+			}
+		}
+	}
+
+	@Test
+	public void testNorm() {
+		assertEquals(5, new SparseVector(new int[] { 2, 7 }, new double[] { 3,
+				-4 }).norm(), DELTA);
+		assertEquals(0, SparseVector.EMPTY.norm(), DELTA);
+
+		SparseVector vector = SparseVector.fromDense(randomDense(new Random(
+				42), 100, 30));
+		assertEquals(Math.sqrt(vector.dot(vector)), vector.norm(), DELTA);
+	}
+
+	@Test
+	public void testCreateSortsEntries() {
+		SparseVector vector = SparseVector.create(new int[] { 9, 2, 5, 0 },
+				new double[] { 1, 2, 3, 4 }, 3);
+		assertEquals(3, vector.size());
+		assertEquals(2, vector.getIndex(0));
+		assertEquals(5, vector.getIndex(1));
+		assertEquals(9, vector.getIndex(2));
+		assertEquals(2, vector.get(2), DELTA);
+		assertEquals(3, vector.get(5), DELTA);
+		assertEquals(1, vector.get(9), DELTA);
+		assertEquals(0, vector.get(0), DELTA);
+	}
+
+	@Test
+	public void testFromDense() {
+		SparseVector vector = SparseVector.fromDense(new double[] { 0, 1.5, 0,
+				0, -2, 0 });
+		assertEquals(2, vector.size());
+		assertEquals(1, vector.getIndex(0));
+		assertEquals(4, vector.getIndex(1));
+		assertEquals(1.5, vector.get(1), DELTA);
+		assertEquals(-2, vector.get(4), DELTA);
+	}
+
+	@Test
+	public void testAddTo() {
+		double[] dense = { 0, 1.5, 0, 0, -2, 0 };
+		SparseVector vector = SparseVector.fromDense(dense);
+		double[] sum = new double[dense.length];
+		vector.addTo(sum);
+		vector.addTo(sum);
+		assertArrayEquals(new double[] { 0, 3, 0, 0, -4, 0 }, sum, DELTA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLengthMismatch() {
+		new SparseVector(new int[] { 1, 2 }, new double[] { 1 });
+	}
+
+	private static double[] randomDense(Random random, int length, int size) {
+		double[] dense = new double[length];
+		for (int i = 0; i < size; i++)
+			dense[random.nextInt(length)] = random.nextDouble() - 0.5;
+		return dense;
+	}
+}
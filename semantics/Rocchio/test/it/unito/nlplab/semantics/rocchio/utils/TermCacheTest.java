@@ -0,0 +1,80 @@
+package it.unito.nlplab.semantics.rocchio.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import it.unito.nlplap.semantics.utils.CorruptFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TermCacheTest {
+
+	private static final String CONFIGURATION = "test";
+	private static final HashSet<String> TERMS = new HashSet<String>(
+			Arrays.asList("cat", "citt\u00e0", "dog"));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+	private File docFile;
+
+	/**
+	 * Rejects the file if the cache ignores it (it never throws).
+	 */
+	private final CorruptFiles.Loader loader = new CorruptFiles.Loader() {
+		@Override
+		public void load(File file) throws IOException {
+			if (new TermCache(file, CONFIGURATION).get(docFile) == null)
+				throw new IOException("Term cache ignored.");
+		}
+	};
+
+	@Before
+	public void setUp() throws IOException {
+		file = new File(folder.getRoot(), "terms.cache");
+		docFile = folder.newFile("doc.txt");
+		TermCache cache = new TermCache(file, CONFIGURATION);
+		cache.put(docFile, TERMS);
+		cache.save();
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		assertEquals(TERMS, new TermCache(file, CONFIGURATION).get(docFile));
+		assertNull(new TermCache(file, "other").get(docFile));
+	}
+
+	@Test
+	public void testRejectsDamagedFile() throws IOException {
+		long length = file.length();
+		CorruptFiles.assertRejectsDamaged(file, new long[] { length - 1,
+				length / 2, 10, 3, 0 }, loader);
+	}
+
+	@Test
+	public void testRejectsBadCounts() throws IOException {
+		// Header, configuration and entry count, then path and modification
+		// time of the entry
+		long entryCount = 4 + 4 + 2 + CONFIGURATION.length();
+		long termCount = entryCount + 4 + 2
+				+ docFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8).length
+				+ 8;
+		assertEquals(TERMS.size(), CorruptFiles.readInt(file, termCount));
+
+		for (long position : new long[] { entryCount, termCount })
+			for (int count : new int[] { -1, Integer.MAX_VALUE }) {
+				File copy = CorruptFiles.copy(file, count);
+				CorruptFiles.writeInt(copy, position, count);
+				CorruptFiles.assertRejected(copy, loader);
+			}
+	}
+}
@@ -1,31 +1,29 @@
 package it.unito.nlplap.semantics.utils;
 
-import it.unito.nlplap.semantics.utils.lemmatizer.MorphItLemmatizer;
+import it.unito.nlplap.semantics.utils.TextProcessor.StopWordsRemoval;
 
-import java.util.ArrayList;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
-
-import org.apache.commons.lang3.StringUtils;
-
-import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.util.CoreMap;
 
+/**
+ * Static shortcuts to extract lemmas and feature vectors, with a
+ * {@link TextProcessor} for each configuration, created once and shared by
+ * the whole application (see {@link TextProcessor#getShared(Locale)} for the
+ * default configuration).
+ *
+ */
 public class FeatureVectorUtils {
 
-	public static StanfordCoreNLP pipeline;
-	public static MorphItLemmatizer morphitLemmatizer;
+	/**
+	 * Processors by language, accepted PoS, stop words removal and proper
+	 * nouns handling.
+	 */
+	private static final Map<List<Object>, TextProcessor> processors = new HashMap<List<Object>, TextProcessor>();
 
 	/**
 	 * Return a feature vector for the given text.<br/>
@@ -46,25 +44,8 @@ public class FeatureVectorUtils {
 	 */
 	public static Map<String, Integer> getFeatureVector(String text,
 			Locale language, List<String> acceptedPoS) throws Exception {
-
-		StopWordsTrimmer swt = new StopWordsTrimmer(language);
-
-		// IMPORTANT: Using LinkedHashMap to preserve order !
-		Map<String, Integer> lemmaCount = new LinkedHashMap<String, Integer>();
-
-		// Extract lemmas with count
-		List<String> lemmas = getLemmas(text, language, lemmaCount,
-				acceptedPoS, false, true);
-
-		// Trim stop-words
-		List<String> terms = swt.trim(lemmas);
-
-		// IMPORTANT: Using LinkedHashMap to preserve order !
-		Map<String, Integer> lemmaCountFinal = new LinkedHashMap<String, Integer>();
-		for (String term : terms)
-			lemmaCountFinal.put(term, lemmaCount.get(term));
-
-		return lemmaCountFinal;
+		return getProcessor(language, acceptedPoS, StopWordsRemoval.LEMMAS,
+				true).getFeatureVector(text);
 	}
 
 	/**
@@ -88,73 +69,72 @@ public class FeatureVectorUtils {
 	public static List<String> getLemmas(String text, Locale language,
 			Map<String, Integer> lemmaCount, List<String> acceptedPoS,
 			boolean removeStopWords, boolean preserveProperNounCase) throws Exception {
+		return getProcessor(language, acceptedPoS,
+				getStopWordsRemoval(removeStopWords), preserveProperNounCase)
+				.getLemmas(text, lemmaCount);
+	}
 
-		Map<String, Object> goodPoS = new HashMap<String, Object>();
-		if (acceptedPoS != null)
-			for (String pos : acceptedPoS)
-				goodPoS.put(pos, null);
-
-		StopWordsTrimmer swt = new StopWordsTrimmer(language);
-		List<String> words = StopWordsTrimmer.tokenize(swt.normalize(text));
-
-		if (removeStopWords)
-			words = swt.trim(words);
-
-		List<String> lemmas = new ArrayList<String>();
-
-		if (language == Locale.ITALIAN) {
-			if (morphitLemmatizer == null)
-				morphitLemmatizer = new MorphItLemmatizer();
-
-			for (String string : words) {
-				String lemma = morphitLemmatizer.getLemmaString(string);
-				lemmas.add(lemma);
-				addToLemmaCount(lemmaCount, lemma);
-			}
-
-		} else {
-			// Init Stanford Pipeline if needed
-			Properties props = new Properties();
-			props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-			if (pipeline == null)
-				pipeline = new StanfordCoreNLP(props);
-
-			text = StringUtils.join(words, " ");
-
-			// Run the pipeline on the text 
-			Annotation document = new Annotation(text);
-			
-			pipeline.annotate(document);
-
-			
-			List<CoreMap> sentences = document.get(SentencesAnnotation.class);
-
-			// For each Sentence
-			for (CoreMap sentence : sentences) {
-				
-				// For each Word
-				for (CoreLabel token : sentence.get(TokensAnnotation.class)) {
-					
-					String word = token.get(TextAnnotation.class);					
-					String pos = token.get(PartOfSpeechAnnotation.class);
-					
-					// Skip unwanted PoS
-					if (acceptedPoS != null && !goodPoS.containsKey(pos))
-						continue;
-										
-					String lemma = token.get(LemmaAnnotation.class);
-					
-					if (preserveProperNounCase && isProperNoun(word, pos, "Stanford"))						
-						lemma = word;
+	/**
+	 * Return normalized, tokenized and lemmatized words of each of the given
+	 * texts.<br/>
+	 * Texts are annotated in batches of {@link TextProcessor#BATCH_SIZE},
+	 * with the CoreNLP multi-threaded annotation: this is much faster than
+	 * invoking {@link FeatureVectorUtils#getLemmas(String, Locale)} on each
+	 * text.
+	 * 
+	 * @param texts
+	 * @param language
+	 * @param acceptedPoS
+	 *            an optional list of PoS to filter words with (see
+	 *            {@link FeatureVectorUtils#getLemmas(String, Locale, Map, List, boolean, boolean)}
+	 *            ).
+	 * @param removeStopWords
+	 * @param preserveProperNounCase
+	 * @param threads
+	 *            the number of threads annotating the texts.
+	 * @return the lemmas of each text, in the same order of the texts.
+	 * @throws Exception
+	 */
+	public static List<List<String>> getLemmas(List<String> texts,
+			Locale language, List<String> acceptedPoS,
+			boolean removeStopWords, boolean preserveProperNounCase,
+			int threads) throws Exception {
+		return getProcessor(language, acceptedPoS,
+				getStopWordsRemoval(removeStopWords), preserveProperNounCase)
+				.getLemmas(texts, threads);
+	}
 
-					lemmas.add(lemma);
-					addToLemmaCount(lemmaCount, lemma);
-				}
-			}
-		}
+	/**
+	 * Return normalized, tokenized, stop-words removed and lemmatized words
+	 * of each of the given texts, annotating them with a thread for each
+	 * available processor.
+	 * 
+	 * @param texts
+	 * @param language
+	 * @return the lemmas of each text, in the same order of the texts.
+	 * @throws Exception
+	 */
+	public static List<List<String>> getLemmas(List<String> texts,
+			Locale language) throws Exception {
+		return TextProcessor.getShared(language).getLemmas(texts,
+				Runtime.getRuntime().availableProcessors());
+	}
 
-		lemmas = swt.trim(lemmas);
-		return lemmas;
+	/**
+	 * Return normalized, tokenized, stop-words removed and lemmatized words
+	 * of each of the given texts, optionally without PoS tagging (see
+	 * {@link FeatureVectorUtils#getLemmas(String, Locale, boolean)}).
+	 * 
+	 * @param texts
+	 * @param language
+	 * @param posTagging
+	 * @return the lemmas of each text, in the same order of the texts.
+	 * @throws Exception
+	 */
+	public static List<List<String>> getLemmas(List<String> texts,
+			Locale language, boolean posTagging) throws Exception {
+		return TextProcessor.getShared(language, posTagging).getLemmas(texts,
+				Runtime.getRuntime().availableProcessors());
 	}
 
 	/**
@@ -166,7 +146,25 @@ public class FeatureVectorUtils {
 	 */
 	public static List<String> getLemmas(String text, Locale language)
 			throws Exception {
-		return getLemmas(text, language, null, null, true, false);
+		return TextProcessor.getShared(language).getLemmas(text);
+	}
+
+	/**
+	 * Return normalized, tokenized, stop-words removed and lemmatized words,
+	 * optionally without PoS tagging.<br/>
+	 * Without PoS tagging English words are lemmatized by Morphology alone,
+	 * which is much faster, but may give different lemmas.
+	 * 
+	 * @param text
+	 * @param language
+	 * @param posTagging
+	 *            false to lemmatize English words without PoS tagging.
+	 * @return
+	 * @throws Exception
+	 */
+	public static List<String> getLemmas(String text, Locale language,
+			boolean posTagging) throws Exception {
+		return TextProcessor.getShared(language, posTagging).getLemmas(text);
 	}
 
 	/**
@@ -180,31 +178,34 @@ public class FeatureVectorUtils {
 	public static List<String> getLemmas(String text) throws Exception {
 		return getLemmas(text, Locale.ENGLISH);
 	}
-	
+
 	/* Utilities */
 
-	protected static boolean isProperNoun(String word, String pos, String posType) {
-		if (posType.equals("Stanford")) {
-			boolean is=false;
-			is |= pos.equals("NNP");
-			is |= pos.equals("NNPS");
-			//is |= pos.equals("NN") && Character.isUpperCase(word.charAt(0));
-			//is |= pos.equals("NNS") && Character.isUpperCase(word.charAt(0));
-			return is;
+	/**
+	 * Returns the processor for the given configuration, creating it on
+	 * first use (with the Stanford pipeline shared by the whole
+	 * application).
+	 */
+	private static synchronized TextProcessor getProcessor(Locale language,
+			List<String> acceptedPoS, StopWordsRemoval stopWordsRemoval,
+			boolean preserveProperNounCase) throws FileNotFoundException {
+		List<Object> key = Arrays.<Object> asList(language,
+				acceptedPoS != null ? new HashSet<String>(acceptedPoS) : null,
+				stopWordsRemoval, preserveProperNounCase);
+		TextProcessor processor = processors.get(key);
+		if (processor == null) {
+			processor = new TextProcessor(language, null, acceptedPoS,
+					stopWordsRemoval, false, preserveProperNounCase);
+			processors.put(key, processor);
 		}
-
-		throw new IllegalArgumentException(String.format(
-				"Undefined pos type %s", posType));
+		return processor;
 	}
 
-	protected static void addToLemmaCount(Map<String, Integer> lemmaCount,
-			String lemma) {
-		if (lemmaCount == null)
-			return;
-
-		if (lemmaCount.containsKey(lemma))
-			lemmaCount.put(lemma, lemmaCount.get(lemma) + 1);
-		else
-			lemmaCount.put(lemma, 1);
+	/**
+	 * Stop words are always removed from lemmas, and optionally from words too.
+	 */
+	private static StopWordsRemoval getStopWordsRemoval(boolean removeStopWords) {
+		return removeStopWords ? StopWordsRemoval.WORDS_AND_LEMMAS
+				: StopWordsRemoval.LEMMAS;
 	}
 }
@@ -0,0 +1,57 @@
+package it.unito.nlplap.semantics.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * The Stanford CoreNLP pipelines shared by the whole application, one for
+ * each set of annotators, created on first use.<br/>
+ * A single pipeline is used by multiple threads at the same time: its
+ * annotators keep no state between documents, and CoreNLP itself runs the
+ * same annotators from several threads (see
+ * {@link StanfordCoreNLP#annotate(Iterable, int)}). Separate pipelines would
+ * not help anyway, since pipelines with the same properties get the same
+ * annotator instances from the CoreNLP annotator pool.<br/>
+ * Pipelines live as long as the JVM.
+ *
+ */
+public final class SharedPipelines {
+
+	/**
+	 * The annotators needed to extract lemmas.
+	 */
+	public static final String LEMMA_ANNOTATORS = "tokenize, ssplit, pos, lemma";
+
+	/**
+	 * The annotators needed to extract PoS, to lemmatize words separately
+	 * (i.e. through a lemma cache).
+	 */
+	public static final String POS_ANNOTATORS = "tokenize, ssplit, pos";
+
+	private static final Map<String, StanfordCoreNLP> shared = new HashMap<String, StanfordCoreNLP>();
+
+	private SharedPipelines() {
+	}
+
+	/**
+	 * Returns the pipeline shared by the whole application for the given
+	 * annotators, creating it if needed.
+	 *
+	 * @param annotators
+	 *            the comma-separated list of annotators.
+	 * @return
+	 */
+	public static synchronized StanfordCoreNLP get(String annotators) {
+		StanfordCoreNLP pipeline = shared.get(annotators);
+		if (pipeline == null) {
+			Properties props = new Properties();
+			props.setProperty("annotators", annotators);
+			pipeline = new StanfordCoreNLP(props);
+			shared.put(annotators, pipeline);
+		}
+		return pipeline;
+	}
+}
@@ -0,0 +1,193 @@
+package it.unito.nlplap.semantics.utils;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable set of stop words, with case-insensitive lookup.<br/>
+ * Words are stored lowercase in an open addressing hash table, and looked up
+ * without lowercasing (i.e. copying) the searched word.<br/>
+ * Stop word datasets are loaded once and shared by the whole application (see
+ * {@link StopWords#getShared(Locale)}).
+ *
+ */
+public final class StopWords {
+
+	public static final String DATASET_FILE_EN = "stop_words_EN.txt";
+	public static final String DATASET_FILE_IT = "stop_words_IT.txt";
+
+	private static final Map<String, StopWords> shared = new HashMap<String, StopWords>();
+
+	private final String[] table;
+	private final int size;
+
+	/**
+	 * @param words
+	 *            the stop words (lowercased, duplicates are ignored).
+	 */
+	public StopWords(Collection<String> words) {
+		int tableSize = 2;
+		while (tableSize < words.size() * 2)
+			tableSize <<= 1;
+		table = new String[tableSize];
+
+		int size = 0;
+		for (String word : words) {
+			word = word.toLowerCase();
+			int slot = getSlot(word, 0, word.length());
+			while (table[slot] != null && !table[slot].equals(word))
+				slot = (slot + 1) & (table.length - 1);
+			if (table[slot] == null) {
+				table[slot] = word;
+				size++;
+			}
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Returns the path of the stop words dataset of the given language.
+	 *
+	 * @param language
+	 * @return
+	 */
+	public static String getDatasetPath(Locale language) {
+		if (language == Locale.ITALIAN)
+			return DATASET_FILE_IT;
+		else
+			return DATASET_FILE_EN;
+	}
+
+	/**
+	 * Returns the stop words of the given language, shared by the whole
+	 * application.
+	 *
+	 * @param language
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static StopWords getShared(Locale language)
+			throws FileNotFoundException {
+		return getShared(getDatasetPath(language));
+	}
+
+	/**
+	 * Returns the stop words in the given dataset, shared by the whole
+	 * application, loading them if needed.
+	 *
+	 * @param datasetPath
+	 *            a resource or a file, with a word for each line.
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static synchronized StopWords getShared(String datasetPath)
+			throws FileNotFoundException {
+		StopWords stopWords = shared.get(datasetPath);
+		if (stopWords == null) {
+			stopWords = load(datasetPath);
+			shared.put(datasetPath, stopWords);
+		}
+		return stopWords;
+	}
+
+	/**
+	 * Loads the stop words in the given dataset.
+	 *
+	 * @param datasetPath
+	 *            a resource or a file, with a word for each line (UTF-8).
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static StopWords load(String datasetPath)
+			throws FileNotFoundException {
+		InputStream in = StopWords.class.getResourceAsStream(datasetPath);
+		if (in == null)
+			in = new FileInputStream(datasetPath);
+
+		List<String> words = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				StandardCharsets.UTF_8));
+		try {
+			try {
+				String line;
+				while ((line = reader.readLine()) != null)
+					words.add(line);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(String.format(
+					"Unable to read stop words dataset '%s'.", datasetPath), e);
+		}
+
+		return new StopWords(words);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the given word is a stop word, ignoring case.
+	 *
+	 * @param word
+	 * @return
+	 */
+	public boolean contains(CharSequence word) {
+		return contains(word, 0, word.length());
+	}
+
+	/**
+	 * Checks whether the given part of a text is a stop word, ignoring case.
+	 *
+	 * @param text
+	 * @param start
+	 *            the start of the word (included).
+	 * @param end
+	 *            the end of the word (excluded).
+	 * @return
+	 */
+	public boolean contains(CharSequence text, int start, int end) {
+		int slot = getSlot(text, start, end);
+		String word;
+		while ((word = table[slot]) != null) {
+			if (equalsIgnoreCase(word, text, start, end))
+				return true;
+			slot = (slot + 1) & (table.length - 1);
+		}
+		return false;
+	}
+
+	private static boolean equalsIgnoreCase(String word, CharSequence text,
+			int start, int end) {
+		if (word.length() != end - start)
+			return false;
+		for (int i = 0; i < word.length(); i++)
+			if (word.charAt(i) != Character.toLowerCase(text.charAt(start + i)))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Returns the first slot to probe for the given word, hashing its
+	 * lowercase characters.
+	 */
+	private int getSlot(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+		hash ^= hash >>> 16;
+		return hash & (table.length - 1);
+	}
+}
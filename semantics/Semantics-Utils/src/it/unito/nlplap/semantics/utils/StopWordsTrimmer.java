@@ -1,15 +1,13 @@
 package it.unito.nlplap.semantics.utils;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.regex.Pattern;
 
 /**
  * Trims stop words from the text.
@@ -17,11 +15,13 @@ import java.util.Scanner;
  */
 public class StopWordsTrimmer {
 
-	public static final String DEFAULT_DATASET_FILE = "stop_words_EN.txt";
+	public static final String DEFAULT_DATASET_FILE = StopWords.DATASET_FILE_EN;
+
+	private static final Pattern FULL_SEPARATORS = Pattern.compile("\\s|,|'");
 
 	private Locale language;
 	private String datasetPath;
-	private Map<String, String> stopwords;
+	private volatile StopWords stopwords;
 
 	public StopWordsTrimmer() {
 		this.language = Locale.ENGLISH;
@@ -30,10 +30,11 @@ public class StopWordsTrimmer {
 
 	public StopWordsTrimmer(Locale language) {
 		this.language = language;
-		if (language == Locale.ITALIAN)
-			datasetPath = "stop_words_IT.txt";
-		else
-			datasetPath = DEFAULT_DATASET_FILE;
+		datasetPath = StopWords.getDatasetPath(language);
+	}
+
+	public Locale getLanguage() {
+		return language;
 	}
 
 	/**
@@ -43,10 +44,16 @@ public class StopWordsTrimmer {
 	 * @return
 	 */
 	public String normalize(String text) {
-		if (language == Locale.ITALIAN)
-			return text.replaceAll("[^A-Za-zàèéìòù ]", " ");
-		else
-			return text.replaceAll("[^A-Za-z' ]", " ");
+		StringBuilder normalized = new StringBuilder(text.length());
+		for (int i = 0; i < text.length();) {
+			int c = text.codePointAt(i);
+			if (c == ' ' || Tokenizer.isWordChar(c, language))
+				normalized.append((char) c);
+			else
+				normalized.append(' ');
+			i += Character.charCount(c);
+		}
+		return normalized.toString();
 	}
 
 	/**
@@ -56,10 +63,44 @@ public class StopWordsTrimmer {
 	 * @return
 	 */
 	public String normalizeWord(String text) {
-		if (language == Locale.ITALIAN)
-			return text.replaceAll("[^A-Za-zàèéìòù]", "");
-		else
-			return text.replaceAll("[^A-Za-z'\\-@.]", "");
+		// Most words are already normalized
+		int i = 0;
+		while (i < text.length() && isNormalizedWordChar(text.charAt(i)))
+			i++;
+		if (i == text.length())
+			return text;
+
+		StringBuilder normalized = new StringBuilder(text.length());
+		normalized.append(text, 0, i);
+		while (i < text.length()) {
+			int c = text.codePointAt(i);
+			if (isNormalizedWordChar(c))
+				normalized.append((char) c);
+			i += Character.charCount(c);
+		}
+		return normalized.toString();
+	}
+
+	private boolean isNormalizedWordChar(int c) {
+		if (Tokenizer.isWordChar(c, language))
+			return true;
+		return language != Locale.ITALIAN
+				&& (c == '-' || c == '@' || c == '.');
+	}
+
+	/**
+	 * Returns a tokenizer for the language, skipping stop words: the same as
+	 * {@link StopWordsTrimmer#trim(Collection)} on the tokenized and
+	 * normalized text, in a single pass.
+	 * 
+	 * @param lowerCase
+	 *            true to lowercase words (as the whole text was lowercased).
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public Tokenizer getTokenizer(boolean lowerCase)
+			throws FileNotFoundException {
+		return new Tokenizer(language, lowerCase, getStopWords());
 	}
 
 	/**
@@ -79,7 +120,7 @@ public class StopWordsTrimmer {
 	 * @return
 	 */
 	public static List<String> tokenizeFull(String text) {
-		return Arrays.asList(text.split("\\s|,|'"));
+		return Arrays.asList(FULL_SEPARATORS.split(text));
 	}
 
 	/**
@@ -102,7 +143,27 @@ public class StopWordsTrimmer {
 	}
 
 	/**
-	 * Remove stopwords found in the given dataset file.
+	 * Remove stopwords found in the given stop words set.
+	 * 
+	 * @param words
+	 * @param stopWords
+	 * @return
+	 */
+	public static List<String> trim(Collection<String> words,
+			StopWords stopWords) {
+		List<String> okWords = new ArrayList<String>(words.size());
+
+		for (String word : words)
+			if (!word.equals(""))
+				if (!stopWords.contains(word))
+					okWords.add(word);
+
+		return okWords;
+	}
+
+	/**
+	 * Remove stopwords found in the given dataset file (loaded once and
+	 * shared, see {@link StopWords#getShared(String)}).
 	 * 
 	 * @param words
 	 * @param datasetPath
@@ -111,13 +172,11 @@ public class StopWordsTrimmer {
 	 */
 	public static List<String> trim(Collection<String> words, String datasetPath)
 			throws FileNotFoundException {
-		Map<String, String> stopWords = loadStopWords(datasetPath);
-		return trim(words, stopWords);
+		return trim(words, StopWords.getShared(datasetPath));
 	}
 
 	/**
-	 * Remove stopwords using the default dataset (
-	 * {@link StopWordsTrimmer#DEFAULT_DATASET_FILE});
+	 * Remove stopwords using the dataset of the language.
 	 * 
 	 * @param words
 	 * @return
@@ -125,34 +184,29 @@ public class StopWordsTrimmer {
 	 */
 	public List<String> trim(Collection<String> words)
 			throws FileNotFoundException {
-		if (stopwords == null)
-			stopwords = loadStopWords(datasetPath);
-
-		return trim(words, stopwords);
+		return trim(words, getStopWords());
 	}
 
-	/* Private methods */
-	
-	private static Map<String, String> loadStopWords(String filePath)
-			throws FileNotFoundException {
-		Map<String, String> stopWords = new HashMap<String, String>();
-
-		Scanner sc;
-		try {
-			sc = new Scanner(
-					StopWordsTrimmer.class.getResourceAsStream(filePath));
-		} catch (Exception ex) {
-			sc = new Scanner(new File(filePath));
-		}
-
-		try {
-			while (sc.hasNextLine()) {
-				stopWords.put(sc.nextLine(), null);
-			}
-		} finally {
-			sc.close();
-		}
+	/**
+	 * Checks whether the given word is a stop word, ignoring case.
+	 * 
+	 * @param word
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public boolean isStopWord(String word) throws FileNotFoundException {
+		return getStopWords().contains(word);
+	}
 
-		return stopWords;
+	/**
+	 * Returns the stop words of the language, shared by the whole application.
+	 * 
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public StopWords getStopWords() throws FileNotFoundException {
+		if (stopwords == null)
+			stopwords = StopWords.getShared(datasetPath);
+		return stopwords;
 	}
 }
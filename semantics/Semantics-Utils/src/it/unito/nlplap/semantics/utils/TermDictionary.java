@@ -0,0 +1,163 @@
+package it.unito.nlplap.semantics.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A dictionary of terms, mapping each term to a dense integer id (i.e. ids
+ * are assigned incrementally starting from 0), with reverse lookup.<br/>
+ * Sets of terms can be stored as sorted arrays of ids (see
+ * {@link TermDictionary#getIds(Collection, boolean)}), which take much less
+ * memory than sets of strings and are intersected with a single merge (see
+ * {@link TermDictionary#countCommon(int[], int[])}).<br/>
+ * The dictionary is thread-safe: lookups are lock-free, while new terms are
+ * added one at a time. Since terms are never removed, a dictionary should be
+ * owned by the object whose terms it holds, so that it is released with it.
+ * There is no dictionary shared by the whole application: each Rocchio
+ * classifier has one for the terms of its collection, and each WSD one for
+ * the words of its sense contexts (document terms stay strings).
+ *
+ */
+public class TermDictionary {
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] terms = new String[16];
+	private volatile int size = 0;
+
+	/**
+	 * Adds the given term to the dictionary, if not already present.
+	 *
+	 * @param term
+	 * @return the id of the term.
+	 */
+	public int add(String term) {
+		Integer id = ids.get(term);
+		if (id != null)
+			return id;
+
+		synchronized (this) {
+			id = ids.get(term);
+			if (id == null) {
+				id = size;
+				if (id == terms.length)
+					terms = Arrays.copyOf(terms, id * 2);
+				terms[id] = term;
+				size = id + 1;
+				// Published last, once the term can be looked up by id
+				ids.put(term, id);
+			}
+			return id;
+		}
+	}
+
+	/**
+	 * Returns the id of the given term.
+	 *
+	 * @param term
+	 * @return the id of the term, or -1 if the term is not in the dictionary.
+	 */
+	public int getId(String term) {
+		Integer id = ids.get(term);
+		return id != null ? id : -1;
+	}
+
+	/**
+	 * Returns the term with the given id.
+	 *
+	 * @param id
+	 * @return
+	 */
+	public String getTerm(int id) {
+		if (id < 0 || id >= size)
+			throw new IndexOutOfBoundsException(String.format(
+					"No term with id %d (size: %d).", id, size));
+		return terms[id];
+	}
+
+	public boolean contains(String term) {
+		return ids.containsKey(term);
+	}
+
+	/**
+	 * Returns the number of terms in the dictionary (i.e. the next id to be
+	 * assigned).
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the canonical instance of the given term, adding it to the
+	 * dictionary if not already present (as {@link String#intern()}).
+	 *
+	 * @param term
+	 * @return
+	 */
+	public String intern(String term) {
+		return getTerm(add(term));
+	}
+
+	/**
+	 * Returns the ids of the given terms, sorted and without duplicates.
+	 *
+	 * @param terms
+	 * @param add
+	 *            true to add missing terms to the dictionary, false to skip
+	 *            them.
+	 * @return
+	 */
+	public int[] getIds(Collection<String> terms, boolean add) {
+		int[] termIds = new int[terms.size()];
+		int count = 0;
+		for (String term : terms) {
+			int id = add ? add(term) : getId(term);
+			if (id >= 0)
+				termIds[count++] = id;
+		}
+		Arrays.sort(termIds, 0, count);
+
+		// Remove duplicates
+		int distinct = 0;
+		for (int i = 0; i < count; i++)
+			if (distinct == 0 || termIds[distinct - 1] != termIds[i])
+				termIds[distinct++] = termIds[i];
+
+		return distinct < termIds.length ? Arrays.copyOf(termIds, distinct)
+				: termIds;
+	}
+
+	/**
+	 * Counts the ids in common between the given sorted arrays of ids (see
+	 * {@link TermDictionary#getIds(Collection, boolean)}).
+	 *
+	 * @param ids1
+	 * @param ids2
+	 * @return
+	 */
+	public static int countCommon(int[] ids1, int[] ids2) {
+		int common = 0;
+		int i = 0, j = 0;
+		while (i < ids1.length && j < ids2.length) {
+			if (ids1[i] < ids2[j])
+				i++;
+			else if (ids1[i] > ids2[j])
+				j++;
+			else {
+				common++;
+				i++;
+				j++;
+			}
+		}
+		return common;
+	}
+
+	@Override
+	public String toString() {
+		int size = this.size;
+		return Arrays.asList(terms).subList(0, size).toString();
+	}
+}
@@ -0,0 +1,441 @@
+package it.unito.nlplap.semantics.utils;
+
+import it.unito.nlplap.semantics.utils.lemmatizer.LemmaCache;
+import it.unito.nlplap.semantics.utils.lemmatizer.MorphItLemmatizer;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.process.Morphology;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Extracts lemmas from texts, with a fixed configuration: language, Stanford
+ * pipeline (for English), accepted PoS, stop words removal, case and proper
+ * nouns handling.<br/>
+ * Words are tokenized and normalized (see {@link Tokenizer}), then lemmatized
+ * with MorphIt for Italian or with Stanford PoS tagging and Morphology for
+ * English, looking lemmas up in the shared {@link LemmaCache} first.<br/>
+ * PoS tagging dominates the processing time of English texts: when neither
+ * PoS filtering nor proper nouns handling are needed, it can be disabled and
+ * words are lemmatized by Morphology alone, without running any Stanford
+ * pipeline (lemmas may differ from the ones of tagged words).<br/>
+ * All the resources (stop words, lemmatizers, pipeline) are resolved once
+ * when the processor is created, which is then immutable and thread-safe.
+ *
+ */
+public class TextProcessor {
+
+	/**
+	 * When stop words are removed.
+	 */
+	public enum StopWordsRemoval {
+		/**
+		 * Stop words are kept.
+		 */
+		NONE,
+		/**
+		 * Stop words are removed from words, before lemmatization.
+		 */
+		WORDS,
+		/**
+		 * Stop words are removed from lemmas, after lemmatization.
+		 */
+		LEMMAS,
+		/**
+		 * Stop words are removed both before and after lemmatization.
+		 */
+		WORDS_AND_LEMMAS;
+
+		public boolean isWords() {
+			return this == WORDS || this == WORDS_AND_LEMMAS;
+		}
+
+		public boolean isLemmas() {
+			return this == LEMMAS || this == WORDS_AND_LEMMAS;
+		}
+	}
+
+	/**
+	 * The number of texts annotated together by
+	 * {@link TextProcessor#getLemmas(List, int)}.
+	 */
+	public static final int BATCH_SIZE = 200;
+
+	private static final Map<Locale, TextProcessor> shared = new HashMap<Locale, TextProcessor>();
+	private static final Map<Locale, TextProcessor> sharedUntagged = new HashMap<Locale, TextProcessor>();
+
+	private final Locale language;
+	private final StanfordCoreNLP pipeline;
+	private final Set<String> acceptedPoS;
+	private final StopWordsRemoval stopWordsRemoval;
+	private final boolean preserveProperNounCase;
+	private final boolean posTagging;
+
+	private final StopWords stopWords;
+	private final Tokenizer tokenizer;
+	private final MorphItLemmatizer morphitLemmatizer;
+	private final LemmaCache cache;
+
+	/**
+	 * Creates a processor removing stop words (both before and after
+	 * lemmatization), keeping all PoS and case, with the Stanford pipeline
+	 * shared by the whole application.
+	 *
+	 * @param language
+	 * @throws FileNotFoundException
+	 */
+	public TextProcessor(Locale language) throws FileNotFoundException {
+		this(language, null, null, StopWordsRemoval.WORDS_AND_LEMMAS, false,
+				false);
+	}
+
+	/**
+	 * Creates a processor with PoS tagging (see
+	 * {@link TextProcessor#TextProcessor(Locale, StanfordCoreNLP, Collection, StopWordsRemoval, boolean, boolean, boolean)}
+	 * ).
+	 *
+	 * @param language
+	 * @param pipeline
+	 * @param acceptedPoS
+	 * @param stopWordsRemoval
+	 * @param lowerCase
+	 * @param preserveProperNounCase
+	 * @throws FileNotFoundException
+	 */
+	public TextProcessor(Locale language, StanfordCoreNLP pipeline,
+			Collection<String> acceptedPoS, StopWordsRemoval stopWordsRemoval,
+			boolean lowerCase, boolean preserveProperNounCase)
+			throws FileNotFoundException {
+		this(language, pipeline, acceptedPoS, stopWordsRemoval, lowerCase,
+				preserveProperNounCase, true);
+	}
+
+	/**
+	 * @param language
+	 * @param pipeline
+	 *            a pipeline with at least the PoS annotator, used for English
+	 *            with PoS tagging only. If null, the pipeline shared by the
+	 *            whole application is used (see {@link SharedPipelines}).
+	 * @param acceptedPoS
+	 *            an optional list of PoS to filter words with. If null all
+	 *            words will be used. <br/>
+	 *            The format depends on the language:
+	 *            <ul>
+	 *            <li>English: Penn TreeBank Project</li>
+	 *            <li>Others: not supported !</li>
+	 *            </ul>
+	 * @param stopWordsRemoval
+	 * @param lowerCase
+	 *            true to lowercase words before lemmatization.
+	 * @param preserveProperNounCase
+	 *            true to use proper nouns as they are, instead of their
+	 *            lemmas (English only).
+	 * @param posTagging
+	 *            false to lemmatize English words without PoS tagging, which
+	 *            is much faster. Requires no accepted PoS and no proper nouns
+	 *            handling.
+	 * @throws FileNotFoundException
+	 */
+	public TextProcessor(Locale language, StanfordCoreNLP pipeline,
+			Collection<String> acceptedPoS, StopWordsRemoval stopWordsRemoval,
+			boolean lowerCase, boolean preserveProperNounCase,
+			boolean posTagging) throws FileNotFoundException {
+		if (!posTagging && (acceptedPoS != null || preserveProperNounCase))
+			throw new IllegalArgumentException(
+					"PoS filtering and proper nouns handling require PoS tagging.");
+
+		this.language = language;
+		this.acceptedPoS = acceptedPoS != null ? Collections
+				.unmodifiableSet(new HashSet<String>(acceptedPoS)) : null;
+		this.stopWordsRemoval = stopWordsRemoval;
+		this.preserveProperNounCase = preserveProperNounCase;
+		this.posTagging = posTagging;
+
+		this.stopWords = StopWords.getShared(language);
+		this.tokenizer = new Tokenizer(language, lowerCase,
+				stopWordsRemoval.isWords() ? stopWords : null);
+		this.cache = LemmaCache.getShared();
+
+		if (language == Locale.ITALIAN) {
+			this.morphitLemmatizer = MorphItLemmatizer.getShared();
+			this.pipeline = null;
+		} else if (!posTagging) {
+			this.morphitLemmatizer = null;
+			this.pipeline = null;
+		} else {
+			this.morphitLemmatizer = null;
+			this.pipeline = pipeline != null ? pipeline : SharedPipelines
+					.get(SharedPipelines.POS_ANNOTATORS);
+		}
+	}
+
+	/**
+	 * Returns the default processor (see
+	 * {@link TextProcessor#TextProcessor(Locale)}) of the given language,
+	 * shared by the whole application.
+	 *
+	 * @param language
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static TextProcessor getShared(Locale language)
+			throws FileNotFoundException {
+		return getShared(language, true);
+	}
+
+	/**
+	 * Returns the default processor (see
+	 * {@link TextProcessor#TextProcessor(Locale)}) of the given language,
+	 * with or without PoS tagging, shared by the whole application.
+	 *
+	 * @param language
+	 * @param posTagging
+	 *            false to lemmatize English words without PoS tagging.
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static synchronized TextProcessor getShared(Locale language,
+			boolean posTagging) throws FileNotFoundException {
+		Map<Locale, TextProcessor> processors = posTagging ? shared
+				: sharedUntagged;
+		TextProcessor processor = processors.get(language);
+		if (processor == null) {
+			processor = new TextProcessor(language, null, null,
+					StopWordsRemoval.WORDS_AND_LEMMAS, false, false, posTagging);
+			processors.put(language, processor);
+		}
+		return processor;
+	}
+
+	public Locale getLanguage() {
+		return language;
+	}
+
+	public Set<String> getAcceptedPoS() {
+		return acceptedPoS;
+	}
+
+	public StopWordsRemoval getStopWordsRemoval() {
+		return stopWordsRemoval;
+	}
+
+	public boolean isPreserveProperNounCase() {
+		return preserveProperNounCase;
+	}
+
+	public boolean isPosTagging() {
+		return posTagging;
+	}
+
+	/**
+	 * Return normalized, tokenized and lemmatized words.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public List<String> getLemmas(String text) {
+		return getLemmas(text, null);
+	}
+
+	/**
+	 * Return normalized, tokenized and lemmatized words.
+	 *
+	 * @param text
+	 * @param lemmaCount
+	 *            an optional map in with set the count of lemmas in the text
+	 *            (including stop words).
+	 * @return
+	 */
+	public List<String> getLemmas(String text, Map<String, Integer> lemmaCount) {
+		List<String> words = tokenizer.tokenize(text);
+
+		List<String> lemmas = new ArrayList<String>();
+
+		if (language == Locale.ITALIAN) {
+			for (String word : words) {
+				String lemma = cache.lemmatize(morphitLemmatizer, word);
+				lemmas.add(lemma);
+				addToLemmaCount(lemmaCount, lemma);
+			}
+		} else if (!posTagging) {
+			// Lemmatize each word without PoS
+			Morphology morphology = new Morphology();
+			for (String word : words) {
+				String lemma = cache.lemmatize(morphology, word);
+				lemmas.add(lemma);
+				addToLemmaCount(lemmaCount, lemma);
+			}
+		} else {
+			// Run a Stanford Pipeline on the text
+			Annotation document = new Annotation(StringUtils.join(words, " "));
+			pipeline.annotate(document);
+			addLemmas(document, lemmas, lemmaCount);
+		}
+
+		return trimLemmas(lemmas);
+	}
+
+	/**
+	 * Returns the lemmas of all the words in the given text, as tokenized by
+	 * the Stanford pipeline (i.e. without normalization and stop words
+	 * removal), with PoS tagging.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public List<String> getTaggedLemmas(String text) {
+		if (pipeline == null)
+			throw new IllegalStateException(
+					"Lemmas of whole texts require a Stanford pipeline with PoS tagging.");
+
+		List<String> lemmas = new ArrayList<String>();
+		Annotation document = new Annotation(text);
+		pipeline.annotate(document);
+		addLemmas(document, lemmas, null);
+		return lemmas;
+	}
+
+	/**
+	 * Return normalized, tokenized and lemmatized words of each of the given
+	 * texts.<br/>
+	 * For English with PoS tagging, texts are annotated in batches of
+	 * {@link TextProcessor#BATCH_SIZE}, with the CoreNLP multi-threaded
+	 * annotation: this is much faster than invoking
+	 * {@link TextProcessor#getLemmas(String)} on each text.
+	 *
+	 * @param texts
+	 * @param threads
+	 *            the number of threads annotating the texts.
+	 * @return the lemmas of each text, in the same order of the texts.
+	 */
+	public List<List<String>> getLemmas(List<String> texts, int threads) {
+		List<List<String>> lemmas = new ArrayList<List<String>>(texts.size());
+
+		if (pipeline == null) {
+			// No annotation needed
+			for (String text : texts)
+				lemmas.add(getLemmas(text));
+			return lemmas;
+		}
+
+		for (int from = 0; from < texts.size(); from += BATCH_SIZE) {
+			List<String> batch = texts.subList(from,
+					Math.min(from + BATCH_SIZE, texts.size()));
+
+			List<Annotation> documents = new ArrayList<Annotation>(
+					batch.size());
+			for (String text : batch)
+				documents.add(new Annotation(StringUtils.join(
+						tokenizer.tokenize(text), " ")));
+
+			pipeline.annotate(documents, threads);
+
+			for (Annotation document : documents) {
+				List<String> documentLemmas = new ArrayList<String>();
+				addLemmas(document, documentLemmas, null);
+				lemmas.add(trimLemmas(documentLemmas));
+			}
+		}
+
+		return lemmas;
+	}
+
+	/**
+	 * Return a feature vector for the given text.<br/>
+	 * Features are the lemmas found in the text, in order of appearance.
+	 *
+	 * @param text
+	 * @return a Map of Lemmas, Count
+	 */
+	public Map<String, Integer> getFeatureVector(String text) {
+		// IMPORTANT: Using LinkedHashMap to preserve order !
+		Map<String, Integer> lemmaCount = new LinkedHashMap<String, Integer>();
+
+		// Extract lemmas with count
+		List<String> lemmas = getLemmas(text, lemmaCount);
+
+		// IMPORTANT: Using LinkedHashMap to preserve order !
+		Map<String, Integer> lemmaCountFinal = new LinkedHashMap<String, Integer>();
+		for (String lemma : lemmas)
+			lemmaCountFinal.put(lemma, lemmaCount.get(lemma));
+
+		return lemmaCountFinal;
+	}
+
+	/**
+	 * Adds the lemmas of an annotated text to the given list.
+	 *
+	 * @param document
+	 *            the text annotated by Stanford Pipeline (with PoS).
+	 * @param lemmas
+	 * @param lemmaCount
+	 *            an optional map in with set the count of lemmas in the text
+	 */
+	protected void addLemmas(Annotation document, List<String> lemmas,
+			Map<String, Integer> lemmaCount) {
+		Morphology morphology = new Morphology();
+
+		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+
+		// For each Sentence
+		for (CoreMap sentence : sentences) {
+
+			// For each Word
+			for (CoreLabel token : sentence.get(TokensAnnotation.class)) {
+
+				String word = token.get(TextAnnotation.class);
+				String pos = token.get(PartOfSpeechAnnotation.class);
+
+				// Skip unwanted PoS
+				if (acceptedPoS != null && !acceptedPoS.contains(pos))
+					continue;
+
+				String lemma = cache.lemmatize(morphology, word, pos);
+
+				if (preserveProperNounCase && isProperNoun(pos))
+					lemma = word;
+
+				lemmas.add(lemma);
+				addToLemmaCount(lemmaCount, lemma);
+			}
+		}
+	}
+
+	private List<String> trimLemmas(List<String> lemmas) {
+		if (!stopWordsRemoval.isLemmas())
+			return lemmas;
+		return StopWordsTrimmer.trim(lemmas, stopWords);
+	}
+
+	protected static boolean isProperNoun(String pos) {
+		return pos.equals("NNP") || pos.equals("NNPS");
+	}
+
+	protected static void addToLemmaCount(Map<String, Integer> lemmaCount,
+			String lemma) {
+		if (lemmaCount == null)
+			return;
+
+		Integer count = lemmaCount.get(lemma);
+		lemmaCount.put(lemma, count != null ? count + 1 : 1);
+	}
+}
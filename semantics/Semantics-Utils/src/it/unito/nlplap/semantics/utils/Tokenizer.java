@@ -0,0 +1,120 @@
+package it.unito.nlplap.semantics.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a text in words in a single pass, driven by character classes: words
+ * are the longest runs of word characters (see
+ * {@link Tokenizer#isWordChar(int, Locale)}), everything else separates
+ * them.<br/>
+ * Optionally, words are lowercased and stop words are skipped, looking them up
+ * before creating the word string. The result is the same as
+ * {@link StopWordsTrimmer#normalize(String)},
+ * {@link StopWordsTrimmer#tokenize(String)} and
+ * {@link StopWordsTrimmer#trim(java.util.Collection)}, without regular
+ * expressions nor intermediate strings.<br/>
+ * The tokenizer is immutable and thread-safe.
+ *
+ */
+public class Tokenizer {
+
+	private final Locale language;
+	private final boolean lowerCase;
+	private final StopWords stopWords;
+
+	/**
+	 * Creates a tokenizer preserving case and stop words.
+	 *
+	 * @param language
+	 */
+	public Tokenizer(Locale language) {
+		this(language, false, null);
+	}
+
+	/**
+	 * @param language
+	 * @param lowerCase
+	 *            true to lowercase words.
+	 * @param stopWords
+	 *            the stop words to skip, or null to keep all words.
+	 */
+	public Tokenizer(Locale language, boolean lowerCase, StopWords stopWords) {
+		this.language = language;
+		this.lowerCase = lowerCase;
+		this.stopWords = stopWords;
+	}
+
+	public Locale getLanguage() {
+		return language;
+	}
+
+	/**
+	 * Checks whether the given character is part of words: letters (including
+	 * accented vowels for Italian) and apostrophes for English.
+	 *
+	 * @param c
+	 *            a character (i.e. code point).
+	 * @param language
+	 * @return
+	 */
+	public static boolean isWordChar(int c, Locale language) {
+		if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'))
+			return true;
+
+		if (language == Locale.ITALIAN)
+			// Accented vowels: a, e (grave and acute), i, o, u
+			return c == '\u00e0' || c == '\u00e8' || c == '\u00e9'
+					|| c == '\u00ec' || c == '\u00f2' || c == '\u00f9';
+		else
+			return c == '\'';
+	}
+
+	/**
+	 * Returns the words of the given text.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public List<String> tokenize(CharSequence text) {
+		List<String> tokens = new ArrayList<String>();
+		tokenize(text, tokens);
+		return tokens;
+	}
+
+	/**
+	 * Adds the words of the given text to the given list, which can be reused
+	 * between texts.
+	 *
+	 * @param text
+	 * @param tokens
+	 */
+	public void tokenize(CharSequence text, List<String> tokens) {
+		int length = text.length();
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			boolean wordChar = i < length && isWordChar(text.charAt(i));
+			if (wordChar) {
+				if (start < 0)
+					start = i;
+			} else if (start >= 0) {
+				addToken(text, start, i, tokens);
+				start = -1;
+			}
+		}
+	}
+
+	private boolean isWordChar(char c) {
+		return isWordChar(lowerCase ? Character.toLowerCase(c) : c, language);
+	}
+
+	private void addToken(CharSequence text, int start, int end,
+			List<String> tokens) {
+		if (stopWords != null && stopWords.contains(text, start, end))
+			return;
+
+		String token = text.subSequence(start, end).toString();
+		tokens.add(lowerCase ? token.toLowerCase() : token);
+	}
+}
@@ -2,6 +2,7 @@ package it.unito.nlplap.semantics.utils;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -65,6 +66,57 @@ public class Utils {
 		return sortedMap;
 	}
 
+	/**
+	 * Compares the UTF-8 bytes in the given buffer with the given string,
+	 * decoding them char by char (i.e. without allocating).
+	 *
+	 * @param buffer
+	 * @param position
+	 *            the position of the first byte.
+	 * @param end
+	 *            the position after the last byte.
+	 * @param string
+	 * @param lowerCase
+	 *            true to compare with the string lowercased char by char (see
+	 *            {@link Character#toLowerCase(char)}).
+	 * @return
+	 */
+	public static boolean equalsUtf8(ByteBuffer buffer, int position, int end,
+			String string, boolean lowerCase) {
+		int i = 0;
+		while (position < end) {
+			int b = buffer.get(position++) & 0xFF;
+			// Truncated sequences never match
+			int following = b < 0x80 ? 0 : b < 0xE0 ? 1 : b < 0xF0 ? 2 : 3;
+			if (position + following > end)
+				return false;
+			int c;
+			if (b < 0x80)
+				c = b;
+			else if (b < 0xE0)
+				c = (b & 0x1F) << 6 | buffer.get(position++) & 0x3F;
+			else if (b < 0xF0) {
+				c = (b & 0x0F) << 12 | (buffer.get(position++) & 0x3F) << 6
+						| buffer.get(position++) & 0x3F;
+			} else {
+				c = (b & 0x07) << 18 | (buffer.get(position++) & 0x3F) << 12
+						| (buffer.get(position++) & 0x3F) << 6
+						| buffer.get(position++) & 0x3F;
+				if (i == string.length()
+						|| string.charAt(i++) != Character.highSurrogate(c))
+					return false;
+				c = Character.lowSurrogate(c);
+			}
+
+			if (i == string.length())
+				return false;
+			char s = string.charAt(i++);
+			if ((lowerCase ? Character.toLowerCase(s) : s) != c)
+				return false;
+		}
+		return i == string.length();
+	}
+
 	public static <A, B extends Cloneable> Map<A, B> clone(Map<A, B> map) {
 		Map<A, B> clone = new HashMap<A, B>();
 		for (Map.Entry<A, B> entry : map.entrySet()) {
@@ -0,0 +1,182 @@
+package it.unito.nlplap.semantics.utils.lemmatizer;
+
+import java.util.Locale;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import edu.stanford.nlp.process.Morphology;
+
+/**
+ * A bounded cache of lemmas, keyed by word, PoS and language.<br/>
+ * Since word frequencies in natural language are very skewed, most words of a
+ * text have already been lemmatized before: looking them up here avoids
+ * calling the lemmatizer again. The least recently used lemmas are evicted
+ * when the cache is full.<br/>
+ * The cache is thread-safe and records hit-rate statistics.
+ *
+ */
+public class LemmaCache {
+
+	public static final long DEFAULT_MAXIMUM_SIZE = 100000;
+
+	private static LemmaCache shared;
+
+	private final Cache<Key, String> cache;
+
+	private static class Key {
+		final String word;
+		final String pos;
+		final Locale language;
+		final int hash;
+
+		Key(String word, String pos, Locale language) {
+			this.word = word;
+			this.pos = pos;
+			this.language = language;
+			int hash = word.hashCode();
+			hash = 31 * hash + (pos != null ? pos.hashCode() : 0);
+			hash = 31 * hash + language.hashCode();
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return hash == other.hash && word.equals(other.word)
+					&& (pos == null ? other.pos == null : pos.equals(other.pos))
+					&& language.equals(other.language);
+		}
+	}
+
+	/**
+	 * @param maximumSize
+	 *            the maximum number of lemmas in the cache.
+	 */
+	public LemmaCache(long maximumSize) {
+		this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize)
+				.recordStats().build();
+	}
+
+	/**
+	 * Returns the cache shared by the whole application, creating it with
+	 * {@link LemmaCache#DEFAULT_MAXIMUM_SIZE} if needed.
+	 *
+	 * @return
+	 */
+	public static synchronized LemmaCache getShared() {
+		if (shared == null)
+			shared = new LemmaCache(DEFAULT_MAXIMUM_SIZE);
+		return shared;
+	}
+
+	/**
+	 * Returns the cached lemma of the given word.
+	 *
+	 * @param word
+	 * @param pos
+	 *            the PoS of the word, or null if the lemma does not depend on
+	 *            it.
+	 * @param language
+	 * @return the lemma, or null if not cached.
+	 */
+	public String get(String word, String pos, Locale language) {
+		return cache.getIfPresent(new Key(word, pos, language));
+	}
+
+	/**
+	 * Stores the lemma of the given word.
+	 *
+	 * @param word
+	 * @param pos
+	 *            the PoS of the word, or null if the lemma does not depend on
+	 *            it.
+	 * @param language
+	 * @param lemma
+	 */
+	public void put(String word, String pos, Locale language, String lemma) {
+		cache.put(new Key(word, pos, language), lemma);
+	}
+
+	/**
+	 * Returns the lemma of the given Italian word, looking it up in the cache
+	 * before using MorphIt.
+	 *
+	 * @param lemmatizer
+	 * @param word
+	 * @return
+	 */
+	public String lemmatize(MorphItLemmatizer lemmatizer, String word) {
+		String lemma = get(word, null, Locale.ITALIAN);
+		if (lemma == null) {
+			lemma = lemmatizer.getLemmaString(word);
+			put(word, null, Locale.ITALIAN, lemma);
+		}
+		return lemma;
+	}
+
+	/**
+	 * Returns the lemma of the given English word, looking it up in the cache
+	 * before using Stanford Morphology (as the CoreNLP lemma annotator does).
+	 *
+	 * @param morphology
+	 *            a {@link Morphology} owned by the calling thread.
+	 * @param word
+	 * @param pos
+	 *            the Penn TreeBank PoS of the word, or an empty string if
+	 *            unknown.
+	 * @return
+	 */
+	public String lemmatize(Morphology morphology, String word, String pos) {
+		String lemma = get(word, pos, Locale.ENGLISH);
+		if (lemma == null) {
+			lemma = pos.length() > 0 ? morphology.lemma(word, pos)
+					: morphology.stem(word);
+			put(word, pos, Locale.ENGLISH, lemma);
+		}
+		return lemma;
+	}
+
+	/**
+	 * Returns the lemma of the given English word, without its PoS, looking
+	 * it up in the cache before using Stanford Morphology.<br/>
+	 * Without PoS, Morphology applies both noun and verb inflection rules (see
+	 * {@link Morphology#stem(String)}), so lemmas may differ from the ones of
+	 * PoS tagged words.
+	 *
+	 * @param morphology
+	 *            a {@link Morphology} owned by the calling thread.
+	 * @param word
+	 * @return
+	 */
+	public String lemmatize(Morphology morphology, String word) {
+		return lemmatize(morphology, word, "");
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Returns hits, misses and evictions since the cache was created.
+	 *
+	 * @return
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+}
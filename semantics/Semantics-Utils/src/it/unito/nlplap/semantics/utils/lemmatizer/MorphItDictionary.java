@@ -0,0 +1,544 @@
+package it.unito.nlplap.semantics.utils.lemmatizer;
+
+import it.unito.nlplap.semantics.utils.Utils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, read-only MorphIt dictionary: for each word form, the list of its
+ * entries (lemma, PoS and extra morphological info), in file order.<br/>
+ * Lemmas, PoS and extras are interned in a single string table, and entries
+ * are packed in int arrays, so that the dictionary is a few flat buffers
+ * instead of several objects for each form. The same layout is used in
+ * memory and in binary images, which can be memory-mapped to skip parsing the
+ * MorphIt text file.<br/>
+ * The layout (big-endian) is:
+ * <ul>
+ * <li>header: magic, version, form count, entry count, string count, form
+ * table size</li>
+ * <li>form table, an open addressing hash table of form ids (plus 1, 0 for
+ * empty slots): <code>int[tableSize]</code></li>
+ * <li>form offsets in the form bytes: <code>int[formCount + 1]</code></li>
+ * <li>first entry of each form: <code>int[formCount + 1]</code></li>
+ * <li>entries, as lemma, PoS and extra string ids (-1 for no extra):
+ * <code>int[entryCount * 3]</code></li>
+ * <li>string offsets in the string bytes: <code>int[stringCount + 1]</code></li>
+ * <li>form bytes, UTF-8</li>
+ * <li>string bytes, UTF-8</li>
+ * </ul>
+ * The dictionary is thread-safe, since the buffer is accessed only by absolute
+ * position.
+ *
+ */
+public class MorphItDictionary {
+
+	public static final int MAGIC = 0x4D4F5250;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 6 * 4;
+
+	private final ByteBuffer buffer;
+	private final int formCount;
+	private final int entryCount;
+	private final int tableSize;
+	private final int tablePosition;
+	private final int formOffsetsPosition;
+	private final int formEntriesPosition;
+	private final int entriesPosition;
+	private final int formBytesPosition;
+
+	/**
+	 * Lemmas, PoS and extras are few compared to forms, and decoded once.
+	 */
+	private final String[] strings;
+
+	/**
+	 * @param buffer
+	 *            an image, whose size has been checked (see
+	 *            {@link MorphItDictionary#getImageSize(ByteBuffer)}).
+	 * @throws IOException
+	 *             if the image tables point outside their sections.
+	 */
+	private MorphItDictionary(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		formCount = buffer.getInt(8);
+		entryCount = buffer.getInt(12);
+		int stringCount = buffer.getInt(16);
+		tableSize = buffer.getInt(20);
+
+		tablePosition = HEADER_SIZE;
+		formOffsetsPosition = tablePosition + tableSize * 4;
+		formEntriesPosition = formOffsetsPosition + (formCount + 1) * 4;
+		entriesPosition = formEntriesPosition + (formCount + 1) * 4;
+		int stringOffsetsPosition = entriesPosition + entryCount * 3 * 4;
+		formBytesPosition = stringOffsetsPosition + (stringCount + 1) * 4;
+		int stringBytesPosition = formBytesPosition
+				+ buffer.getInt(formOffsetsPosition + formCount * 4);
+
+		// Check ranges, so that lookups never fail on a corrupt image
+		int used = 0;
+		for (int slot = 0; slot < tableSize; slot++) {
+			int id = buffer.getInt(tablePosition + slot * 4);
+			if (id < 0 || id > formCount)
+				throw new IOException(String.format(
+						"Form id %d out of range in the form table.", id - 1));
+			if (id > 0)
+				used++;
+		}
+		if (used != formCount)
+			throw new IOException(String.format(
+					"%d forms in the form table instead of %d.", used,
+					formCount));
+		checkOffsets(formOffsetsPosition, formCount, "Form offsets");
+		checkOffsets(formEntriesPosition, formCount, "Form entries");
+		if (buffer.getInt(formEntriesPosition + formCount * 4) != entryCount)
+			throw new IOException("Form entries do not match the entry count.");
+		checkOffsets(stringOffsetsPosition, stringCount, "String offsets");
+		for (int entry = 0; entry < entryCount; entry++)
+			for (int field = 0; field < 3; field++) {
+				int id = buffer.getInt(entriesPosition + entry * 12 + field
+						* 4);
+				// Only the extra is optional
+				if (id < (field == 2 ? -1 : 0) || id >= stringCount)
+					throw new IOException(String.format(
+							"String id %d out of range in entry %d.", id,
+							entry));
+			}
+
+		strings = new String[stringCount];
+		for (int s = 0; s < stringCount; s++) {
+			int start = buffer.getInt(stringOffsetsPosition + s * 4);
+			int end = buffer.getInt(stringOffsetsPosition + (s + 1) * 4);
+			strings[s] = getString(stringBytesPosition + start, end - start);
+		}
+	}
+
+	/**
+	 * Checks that the given offsets start from 0 and never decrease.
+	 *
+	 * @param position
+	 * @param count
+	 *            the number of offsets, minus 1.
+	 * @param name
+	 * @throws IOException
+	 */
+	private void checkOffsets(int position, int count, String name)
+			throws IOException {
+		int offset = buffer.getInt(position);
+		if (offset != 0)
+			throw new IOException(name + " do not start from 0.");
+		for (int i = 1; i <= count; i++) {
+			int next = buffer.getInt(position + i * 4);
+			if (next < offset)
+				throw new IOException(String.format(
+						"%s decrease at %d.", name, i));
+			offset = next;
+		}
+	}
+
+	/**
+	 * Parses a MorphIt text file (form, lemma and PoS with extra info,
+	 * separated by tabs, one entry per line).
+	 *
+	 * @param in
+	 *            the MorphIt file contents, UTF-8 encoded.
+	 * @return
+	 * @throws IOException
+	 */
+	public static MorphItDictionary parse(InputStream in) throws IOException {
+		Map<String, List<int[]>> forms = new LinkedHashMap<String, List<int[]>>();
+		Map<String, Integer> stringIds = new HashMap<String, Integer>();
+		List<String> strings = new ArrayList<String>();
+		int entryCount = 0;
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String lineSplit[] = line.split("\t");
+				if (lineSplit.length < 2)
+					continue;
+
+				String extra = null;
+				String pos = "";
+				if (lineSplit.length > 2) {
+					extra = lineSplit[2];
+					int i = extra.indexOf(":");
+					pos = (i > 0 ? extra.substring(0, i) : extra);
+				}
+
+				List<int[]> entries = forms.get(lineSplit[0]);
+				if (entries == null) {
+					entries = new ArrayList<int[]>(1);
+					forms.put(lineSplit[0], entries);
+				}
+				entries.add(new int[] {
+						intern(lineSplit[1], stringIds, strings),
+						intern(pos, stringIds, strings),
+						extra != null ? intern(extra, stringIds, strings) : -1 });
+				entryCount++;
+			}
+		} finally {
+			reader.close();
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		write(out, forms, entryCount, strings);
+		return new MorphItDictionary(ByteBuffer.wrap(out.toByteArray()));
+	}
+
+	private static int intern(String string, Map<String, Integer> stringIds,
+			List<String> strings) {
+		Integer id = stringIds.get(string);
+		if (id == null) {
+			id = strings.size();
+			stringIds.put(string, id);
+			strings.add(string);
+		}
+		return id;
+	}
+
+	private static void write(OutputStream stream,
+			Map<String, List<int[]>> forms, int entryCount,
+			List<String> strings) throws IOException {
+		int formCount = forms.size();
+		byte[][] formBytes = new byte[formCount][];
+
+		// Build form table
+		int tableSize = getTableSize(formCount);
+		int[] table = new int[tableSize];
+		int id = 0;
+		for (String form : forms.keySet()) {
+			formBytes[id] = form.getBytes(StandardCharsets.UTF_8);
+			int slot = getSlot(form.hashCode(), tableSize);
+			while (table[slot] != 0)
+				slot = (slot + 1) & (tableSize - 1);
+			table[slot] = ++id;
+		}
+
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(formCount);
+		out.writeInt(entryCount);
+		out.writeInt(strings.size());
+		out.writeInt(tableSize);
+
+		for (int slot : table)
+			out.writeInt(slot);
+
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] bytes : formBytes) {
+			offset += bytes.length;
+			out.writeInt(offset);
+		}
+
+		int entry = 0;
+		out.writeInt(entry);
+		for (List<int[]> entries : forms.values()) {
+			entry += entries.size();
+			out.writeInt(entry);
+		}
+
+		for (List<int[]> entries : forms.values())
+			for (int[] values : entries)
+				for (int value : values)
+					out.writeInt(value);
+
+		byte[][] stringBytes = new byte[strings.size()][];
+		offset = 0;
+		out.writeInt(offset);
+		for (int s = 0; s < stringBytes.length; s++) {
+			stringBytes[s] = strings.get(s).getBytes(StandardCharsets.UTF_8);
+			offset += stringBytes[s].length;
+			out.writeInt(offset);
+		}
+
+		for (byte[] bytes : formBytes)
+			out.write(bytes);
+		for (byte[] bytes : stringBytes)
+			out.write(bytes);
+
+		out.flush();
+	}
+
+	/**
+	 * Writes the dictionary to a binary image, to be loaded with
+	 * {@link MorphItDictionary#map(File)}.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		FileChannel channel = new FileOutputStream(file).getChannel();
+		try {
+			ByteBuffer source = buffer.duplicate();
+			source.clear();
+			while (source.hasRemaining())
+				channel.write(source);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Maps the given binary image in memory (read-only).
+	 *
+	 * @param file
+	 *            a file written by {@link MorphItDictionary#save(File)}.
+	 * @return
+	 * @throws IOException
+	 */
+	public static MorphItDictionary map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+				throw new IOException(String.format(
+						"'%s' is not a MorphIt dictionary image.", file));
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException(String.format(
+						"Unsupported MorphIt dictionary version %d in '%s'.",
+						buffer.getInt(4), file));
+			if (getImageSize(buffer) != buffer.limit())
+				throw new IOException(String.format(
+						"MorphIt dictionary image '%s' is truncated or corrupt.",
+						file));
+			try {
+				return new MorphItDictionary(buffer);
+			} catch (IOException e) {
+				throw new IOException(String.format(
+						"MorphIt dictionary image '%s' is corrupt: %s", file,
+						e.getMessage()), e);
+			}
+		} finally {
+			// The mapping stays valid after closing the channel
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the size of the image in the given buffer, from the sizes in its
+	 * header and the offsets of its form and string bytes.
+	 *
+	 * @param buffer
+	 * @return the size, or -1 if the header or offsets point outside the
+	 *         buffer.
+	 */
+	private static long getImageSize(ByteBuffer buffer) {
+		int formCount = buffer.getInt(8);
+		int entryCount = buffer.getInt(12);
+		int stringCount = buffer.getInt(16);
+		int tableSize = buffer.getInt(20);
+		if (formCount < 0 || entryCount < 0 || stringCount < 0
+				|| tableSize < 2L * formCount || tableSize <= 0
+				|| Integer.bitCount(tableSize) != 1)
+			return -1;
+
+		long formOffsetsPosition = HEADER_SIZE + tableSize * 4L;
+		long stringOffsetsPosition = formOffsetsPosition + (formCount + 1L)
+				* 8 + entryCount * 12L;
+		long formBytesPosition = stringOffsetsPosition + (stringCount + 1L)
+				* 4;
+		if (formBytesPosition > buffer.limit())
+			return -1;
+
+		int formBytes = buffer.getInt((int) (formOffsetsPosition + formCount
+				* 4L));
+		int stringBytes = buffer.getInt((int) (stringOffsetsPosition
+				+ stringCount * 4L));
+		if (formBytes < 0 || stringBytes < 0)
+			return -1;
+		return formBytesPosition + formBytes + stringBytes;
+	}
+
+	/**
+	 * Builds the binary image of a MorphIt text file.<br/>
+	 * Usage: <code>MorphItDictionary &lt;morph-it text file&gt; &lt;image file&gt;</code>
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err
+					.println("Usage: MorphItDictionary <morph-it text file> <image file>");
+			System.exit(1);
+		}
+
+		MorphItDictionary dictionary = parse(new FileInputStream(args[0]));
+		dictionary.save(new File(args[1]));
+		System.out.println(String.format(
+				"MorphIt dictionary image '%s' written: %d forms, %d entries",
+				args[1], dictionary.size(), dictionary.getEntryCount()));
+	}
+
+	/**
+	 * Returns the number of word forms.
+	 *
+	 * @return
+	 */
+	public int size() {
+		return formCount;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Returns the id of the given word form.
+	 *
+	 * @param form
+	 * @return the id, or -1 if not found.
+	 */
+	public int getFormId(String form) {
+		return getFormId(form, false);
+	}
+
+	/**
+	 * Returns the id of the given word form, optionally lowercased char by
+	 * char (see {@link Character#toLowerCase(char)}).<br/>
+	 * Lookups do not allocate: the form is hashed and compared with the
+	 * stored UTF-8 bytes without encoding it.
+	 *
+	 * @param form
+	 * @param lowerCase
+	 * @return the id, or -1 if not found.
+	 */
+	public int getFormId(String form, boolean lowerCase) {
+		int hash;
+		if (lowerCase) {
+			// Same as the hash code of the lowercase string
+			hash = 0;
+			for (int i = 0; i < form.length(); i++)
+				hash = 31 * hash + Character.toLowerCase(form.charAt(i));
+		} else
+			hash = form.hashCode();
+
+		int slot = getSlot(hash, tableSize);
+		int id;
+		while ((id = buffer.getInt(tablePosition + slot * 4)) != 0) {
+			if (formEquals(id - 1, form, lowerCase))
+				return id - 1;
+			slot = (slot + 1) & (tableSize - 1);
+		}
+		return -1;
+	}
+
+	private boolean formEquals(int id, String form, boolean lowerCase) {
+		int start = buffer.getInt(formOffsetsPosition + id * 4);
+		int end = buffer.getInt(formOffsetsPosition + (id + 1) * 4);
+		return Utils.equalsUtf8(buffer, formBytesPosition + start,
+				formBytesPosition + end, form, lowerCase);
+	}
+
+	public String getForm(int id) {
+		int start = buffer.getInt(formOffsetsPosition + id * 4);
+		int end = buffer.getInt(formOffsetsPosition + (id + 1) * 4);
+		return getString(formBytesPosition + start, end - start);
+	}
+
+	/**
+	 * Returns the form of the given entry.
+	 *
+	 * @param entry
+	 * @return the form id.
+	 */
+	public int getEntryForm(int entry) {
+		// Entries are grouped by form, in form order
+		int low = 0;
+		int high = formCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (getFirstEntry(mid) <= entry)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first entry of the given form.
+	 *
+	 * @param id
+	 *            the form id.
+	 * @return
+	 */
+	public int getFirstEntry(int id) {
+		return buffer.getInt(formEntriesPosition + id * 4);
+	}
+
+	/**
+	 * Returns the entry after the last one of the given form.
+	 *
+	 * @param id
+	 *            the form id.
+	 * @return
+	 */
+	public int getLastEntry(int id) {
+		return buffer.getInt(formEntriesPosition + (id + 1) * 4);
+	}
+
+	public String getLemma(int entry) {
+		return strings[buffer.getInt(entriesPosition + entry * 12)];
+	}
+
+	public String getPos(int entry) {
+		return strings[buffer.getInt(entriesPosition + entry * 12 + 4)];
+	}
+
+	public String getExtra(int entry) {
+		int id = buffer.getInt(entriesPosition + entry * 12 + 8);
+		return id >= 0 ? strings[id] : null;
+	}
+
+	private String getString(int position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = buffer.get(position + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the size of the form table for the given number of forms (a
+	 * power of two, at most half full).
+	 *
+	 * @param formCount
+	 * @return
+	 */
+	private static int getTableSize(int formCount) {
+		int size = 2;
+		while (size < formCount * 2)
+			size <<= 1;
+		return size;
+	}
+
+	private static int getSlot(int hash, int tableSize) {
+		hash ^= hash >>> 16;
+		return hash & (tableSize - 1);
+	}
+}
@@ -1,25 +1,78 @@
 package it.unito.nlplap.semantics.utils.lemmatizer;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.Scanner;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
 /**
- * A lemmatizer based on MorphIt.
+ * A lemmatizer based on MorphIt.<br/>
+ * The dictionary is memory-mapped from the binary image in
+ * {@link MorphItLemmatizer#MORPHIT_IMAGE_PATH}, if present (see
+ * {@link MorphItDictionary#main(String[])}), or parsed from the MorphIt text
+ * file otherwise.
  *
  */
 public class MorphItLemmatizer {
 
+	private static final Logger LOG = LogManager
+			.getLogger(MorphItLemmatizer.class);
+
 	public static final String MORPHIT_PATH = "morph-it_048_UTF8.txt";
+	public static final String MORPHIT_IMAGE_PATH = "morph-it_048.dict";
+
+	private static MorphItLemmatizer shared;
 
-	Multimap<String, MorphItData> lemmas = HashMultimap.create();
+	private MorphItDictionary dictionary;
 
 	public MorphItLemmatizer() throws FileNotFoundException {
-		this.lemmas = loadMorphItData(MORPHIT_PATH);
+		File image = new File(MORPHIT_IMAGE_PATH);
+		if (image.exists())
+			try {
+				this.dictionary = MorphItDictionary.map(image);
+				return;
+			} catch (IOException e) {
+				LOG.warn(String.format(
+						"MorphIt image '%s' is not readable, ignoring it: %s",
+						image, e));
+			}
+
+		this.dictionary = loadMorphItDictionary(MORPHIT_PATH);
+	}
+
+	/**
+	 * @param dictionary
+	 *            a MorphIt dictionary, parsed or mapped from an image.
+	 */
+	public MorphItLemmatizer(MorphItDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Returns the lemmatizer shared by the whole application, loading it if
+	 * needed.
+	 * 
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static synchronized MorphItLemmatizer getShared()
+			throws FileNotFoundException {
+		if (shared == null)
+			shared = new MorphItLemmatizer();
+		return shared;
+	}
+
+	public MorphItDictionary getDictionary() {
+		return dictionary;
 	}
 
 	public enum PoSType {
@@ -49,29 +102,64 @@ public class MorphItLemmatizer {
 		return null;
 	}
 
-	public MorphItData getLemma(String word, PoSType pos) {
+	/**
+	 * Returns the first entry of the given form with the given PoS, in the
+	 * dictionary.
+	 * 
+	 * @param form
+	 *            the form id.
+	 * @param pos
+	 * @return the entry, or -1 if not found.
+	 */
+	protected int findEntryByPoS(int form, PoSType pos) {
+		for (int entry = dictionary.getFirstEntry(form); entry < dictionary
+				.getLastEntry(form); entry++)
+			if (dictionary.getPos(entry).contains(pos.getTag()))
+				return entry;
+		return -1;
+	}
+
+	/**
+	 * Returns the entry of the given word in the dictionary.
+	 * 
+	 * @param word
+	 * @param pos
+	 * @return the entry, or -1 if not found.
+	 */
+	protected int findEntry(String word, PoSType pos) {
 		// Original case first
-		Collection<MorphItData> lemmaList = lemmas.get(word);
-		MorphItData lemma = null;
-		if (pos == PoSType.DEFAULT) {
-			lemma = findLemmaByPoS(lemmaList, PoSType.NOUN);
-			if (lemma == null)
-				lemma = findLemmaByPoS(lemmaList, PoSType.ALL);
-		} else
-			lemma = findLemmaByPoS(lemmaList, pos);
+		int entry = findEntry(dictionary.getFormId(word), pos);
 
 		// Try also with lowercase
-		if (lemma == null) {
-			lemmaList = lemmas.get(word.toLowerCase());
-			if (pos == PoSType.DEFAULT) {
-				lemma = findLemmaByPoS(lemmaList, PoSType.NOUN);
-				if (lemma == null)
-					lemma = findLemmaByPoS(lemmaList, PoSType.ALL);
-			} else
-				lemma = findLemmaByPoS(lemmaList, pos);
-		}
+		if (entry < 0)
+			entry = findEntry(dictionary.getFormId(word, true), pos);
+
+		return entry;
+	}
+
+	private int findEntry(int form, PoSType pos) {
+		if (form < 0)
+			return -1;
+
+		int entry;
+		if (pos == PoSType.DEFAULT) {
+			entry = findEntryByPoS(form, PoSType.NOUN);
+			if (entry < 0)
+				entry = findEntryByPoS(form, PoSType.ALL);
+		} else
+			entry = findEntryByPoS(form, pos);
+		return entry;
+	}
 
-		return lemma;
+	public MorphItData getLemma(String word, PoSType pos) {
+		int entry = findEntry(word, pos);
+		if (entry < 0)
+			return null;
+
+		// The form as in the dictionary (e.g. lowercase)
+		return new MorphItData(dictionary.getLemma(entry),
+				dictionary.getForm(dictionary.getEntryForm(entry)),
+				dictionary.getPos(entry), dictionary.getExtra(entry));
 	}
 
 	public MorphItData getLemma(String word) {
@@ -79,14 +167,45 @@ public class MorphItLemmatizer {
 	}
 
 	public String getLemmaString(String word, PoSType pos) {
-		MorphItData data = getLemma(word, pos);
-		return data != null ? data.getLemma() : word;
+		int entry = findEntry(word, pos);
+		return entry >= 0 ? dictionary.getLemma(entry) : word;
 	}
 
 	public String getLemmaString(String word) {
 		return getLemmaString(word, PoSType.DEFAULT);
 	}
 
+	/**
+	 * Parses the MorphIt text file in the given path (a resource or a file)
+	 * into a compact dictionary.
+	 * 
+	 * @param path
+	 * @return
+	 * @throws FileNotFoundException
+	 */
+	public static MorphItDictionary loadMorphItDictionary(String path)
+			throws FileNotFoundException {
+		InputStream in = MorphItLemmatizer.class.getResourceAsStream(path);
+		if (in == null)
+			in = new FileInputStream(path);
+
+		try {
+			return MorphItDictionary.parse(in);
+		} catch (IOException e) {
+			throw new IllegalStateException(String.format(
+					"Unable to read MorphIt file '%s'.", path), e);
+		}
+	}
+
+	/**
+	 * Loads MorphIt data into a {@link Multimap}, with an object for each
+	 * entry (see {@link MorphItLemmatizer#loadMorphItDictionary(String)} for a
+	 * compact form).
+	 * 
+	 * @param path
+	 * @return
+	 * @throws FileNotFoundException
+	 */
 	public static Multimap<String, MorphItData> loadMorphItData(String path)
 			throws FileNotFoundException {
 		Multimap<String, MorphItData> lemmas = HashMultimap.create();
@@ -0,0 +1,119 @@
+package it.unito.nlplap.semantics.utils;
+
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers to damage the binary files written by the models and dictionaries
+ * (magic number first), and to check that damaged files are rejected.
+ */
+public final class CorruptFiles {
+
+	/**
+	 * Loads or maps a file, throwing {@link IOException} if it is corrupt.
+	 */
+	public interface Loader {
+		void load(File file) throws IOException;
+	}
+
+	private CorruptFiles() {
+	}
+
+	/**
+	 * Checks that every loader rejects the file when it is truncated at each of
+	 * the given lengths, padded by one byte or when its magic number is
+	 * cleared. Each change is made on a new copy of the file, next to it, so
+	 * that the file itself is never rewritten (it may still be mapped).
+	 *
+	 * @param file
+	 * @param lengths
+	 * @param loaders
+	 * @throws IOException
+	 */
+	public static void assertRejectsDamaged(File file, long[] lengths,
+			Loader... loaders) throws IOException {
+		int copies = 0;
+		for (long length : lengths) {
+			File copy = copy(file, ++copies);
+			setLength(copy, length);
+			assertRejected(copy, loaders);
+		}
+
+		File padded = copy(file, ++copies);
+		setLength(padded, file.length() + 1);
+		assertRejected(padded, loaders);
+
+		File cleared = copy(file, ++copies);
+		writeInt(cleared, 0, 0);
+		assertRejected(cleared, loaders);
+	}
+
+	/**
+	 * Copies the file next to it, with the given number as suffix.
+	 *
+	 * @param file
+	 * @param number
+	 * @return the copy.
+	 * @throws IOException
+	 */
+	public static File copy(File file, int number) throws IOException {
+		File copy = new File(file.getParentFile(), file.getName() + "."
+				+ number);
+		Files.copy(file.toPath(), copy.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		return copy;
+	}
+
+	/**
+	 * Checks that every loader rejects the file with an {@link IOException}.
+	 *
+	 * @param file
+	 * @param loaders
+	 */
+	public static void assertRejected(File file, Loader... loaders) {
+		for (Loader loader : loaders) {
+			try {
+				loader.load(file);
+				fail(String.format("Corrupt file '%s' loaded (%d bytes).",
+						file.getName(), file.length()));
+			} catch (IOException e) {
+				// Expected
+			}
+		}
+	}
+
+	public static void setLength(File file, long length) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(length);
+		} finally {
+			raf.close();
+		}
+	}
+
+	public static int readInt(File file, long position) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			raf.seek(position);
+			return raf.readInt();
+		} finally {
+			raf.close();
+		}
+	}
+
+	public static void writeInt(File file, long position, int value)
+			throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			raf.writeInt(value);
+		} finally {
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package it.unito.nlplap.semantics.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class StopWordsTest {
+
+	/**
+	 * The stop words datasets, relative to the module directory.
+	 */
+	static final String DATASET_DIR = "src/it/unito/nlplap/semantics/utils/";
+
+	/**
+	 * A sample text of both languages, with stop words in several cases.
+	 */
+	static final String TEXT = "The cat's hat, it is NOT the dog's! "
+			+ "Perch\u00e9 la citt\u00e0 \u00e8 pi\u00f9 bella? "
+			+ "L'amico  di   Niccol\u00f2\tpart\u00ec,\n"
+			+ "E-mail: a.b@c.it (42 volte) -- CITT\u00c0 \u00fcber na\u00efve";
+
+	@Test
+	public void testContainsIgnoresCase() {
+		StopWords stopWords = new StopWords(Arrays.asList("the", "And", "of"));
+		assertTrue(stopWords.contains("the"));
+		assertTrue(stopWords.contains("THE"));
+		assertTrue(stopWords.contains("and"));
+		assertFalse(stopWords.contains("cat"));
+		assertFalse(stopWords.contains("th"));
+		assertFalse(stopWords.contains(""));
+	}
+
+	@Test
+	public void testContainsRange() {
+		StopWords stopWords = new StopWords(Arrays.asList("the", "of"));
+		String text = "cat of The hat";
+		assertTrue(stopWords.contains(text, 4, 6));
+		assertTrue(stopWords.contains(text, 7, 10));
+		assertFalse(stopWords.contains(text, 0, 3));
+		assertFalse(stopWords.contains(text, 4, 5));
+	}
+
+	@Test
+	public void testDuplicatesIgnored() {
+		StopWords stopWords = new StopWords(Arrays.asList("the", "THE", "of",
+				"the"));
+		assertEquals(2, stopWords.size());
+	}
+
+	@Test
+	public void testEmpty() {
+		StopWords stopWords = new StopWords(Arrays.<String> asList());
+		assertEquals(0, stopWords.size());
+		assertFalse(stopWords.contains("the"));
+	}
+
+	@Test
+	public void testDatasetParityEnglish() throws IOException {
+		testDatasetParity(Locale.ENGLISH);
+	}
+
+	@Test
+	public void testDatasetParityItalian() throws IOException {
+		testDatasetParity(Locale.ITALIAN);
+	}
+
+	/**
+	 * Checks that the datasets give the same answers as the map lookup of the
+	 * baseline {@link StopWordsTrimmer} (i.e. lowercased words in a set of
+	 * dataset lines).
+	 */
+	private void testDatasetParity(Locale language) throws IOException {
+		String path = DATASET_DIR + StopWords.getDatasetPath(language);
+		List<String> lines = Files.readAllLines(Paths.get(path),
+				StandardCharsets.UTF_8);
+		Set<String> baseline = new HashSet<String>(lines);
+		StopWords stopWords = StopWords.load(path);
+
+		assertEquals(baseline.size(), stopWords.size());
+		for (String word : lines) {
+			assertTrue(word, stopWords.contains(word));
+			assertTrue(word, stopWords.contains(word.toUpperCase()));
+		}
+		for (String word : TEXT.split("[^\\p{L}']+"))
+			assertEquals(word,
+					baseline.contains(word.toLowerCase()),
+					stopWords.contains(word));
+	}
+}
@@ -0,0 +1,81 @@
+package it.unito.nlplap.semantics.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TermDictionaryTest {
+
+	@Test
+	public void testAddAssignsDenseIds() {
+		TermDictionary dictionary = new TermDictionary();
+		assertEquals(0, dictionary.add("cat"));
+		assertEquals(1, dictionary.add("dog"));
+		assertEquals(0, dictionary.add("cat"));
+		assertEquals(2, dictionary.size());
+
+		assertEquals(1, dictionary.getId("dog"));
+		assertEquals(-1, dictionary.getId("fish"));
+		assertEquals("dog", dictionary.getTerm(1));
+		assertTrue(dictionary.contains("cat"));
+		assertFalse(dictionary.contains("fish"));
+	}
+
+	@Test
+	public void testGrowsPastInitialCapacity() {
+		TermDictionary dictionary = new TermDictionary();
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, dictionary.add("term" + i));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, dictionary.getId("term" + i));
+			assertEquals("term" + i, dictionary.getTerm(i));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetTermOutOfRange() {
+		TermDictionary dictionary = new TermDictionary();
+		dictionary.add("cat");
+		dictionary.getTerm(1);
+	}
+
+	@Test
+	public void testIntern() {
+		TermDictionary dictionary = new TermDictionary();
+		String term = dictionary.intern(new String("cat"));
+		assertSame(term, dictionary.intern(new String("cat")));
+	}
+
+	@Test
+	public void testGetIdsSortedAndDistinct() {
+		TermDictionary dictionary = new TermDictionary();
+		dictionary.add("c");
+		dictionary.add("b");
+		dictionary.add("a");
+
+		assertArrayEquals(new int[] { 0, 1, 2 },
+				dictionary.getIds(Arrays.asList("a", "c", "b", "a"), false));
+		// Missing terms are skipped, unless added
+		assertArrayEquals(new int[] { 1 },
+				dictionary.getIds(Arrays.asList("b", "d"), false));
+		assertEquals(3, dictionary.size());
+		assertArrayEquals(new int[] { 1, 3 },
+				dictionary.getIds(Arrays.asList("d", "b"), true));
+		assertEquals(4, dictionary.size());
+	}
+
+	@Test
+	public void testCountCommon() {
+		assertEquals(2, TermDictionary.countCommon(new int[] { 1, 3, 5, 7 },
+				new int[] { 0, 3, 4, 7, 9 }));
+		assertEquals(0, TermDictionary.countCommon(new int[] { 1, 2 },
+				new int[] { 3, 4 }));
+		assertEquals(0, TermDictionary.countCommon(new int[0], new int[] { 1 }));
+	}
+}
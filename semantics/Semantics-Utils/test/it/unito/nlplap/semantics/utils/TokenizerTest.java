@@ -0,0 +1,148 @@
+package it.unito.nlplap.semantics.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TokenizerTest {
+
+	/**
+	 * Characters for random texts: word characters of both languages, and
+	 * separators. Characters whose lowercase form has a different length are
+	 * not included.
+	 */
+	private static final String ALPHABET = "abcxyzABCXYZ' \t\n.,;:-@!?09"
+			+ "\u00e0\u00e8\u00e9\u00ec\u00f2\u00f9\u00c0\u00c8\u00c9\u00fc";
+
+	@Test
+	public void testTokenize() {
+		Tokenizer tokenizer = new Tokenizer(Locale.ENGLISH);
+		assertEquals(Arrays.asList("The", "cat's", "hat", "it"),
+				tokenizer.tokenize("  The cat's hat, it."));
+		assertEquals(Arrays.<String> asList(), tokenizer.tokenize(""));
+		assertEquals(Arrays.<String> asList(), tokenizer.tokenize(" ,;42 "));
+	}
+
+	@Test
+	public void testTokenizeReusesList() {
+		Tokenizer tokenizer = new Tokenizer(Locale.ENGLISH);
+		List<String> tokens = new ArrayList<String>();
+		tokenizer.tokenize("a b", tokens);
+		tokenizer.tokenize("c", tokens);
+		assertEquals(Arrays.asList("a", "b", "c"), tokens);
+	}
+
+	@Test
+	public void testIsWordChar() {
+		assertTrue(Tokenizer.isWordChar('a', Locale.ENGLISH));
+		assertTrue(Tokenizer.isWordChar('\'', Locale.ENGLISH));
+		assertFalse(Tokenizer.isWordChar('\u00e0', Locale.ENGLISH));
+		assertTrue(Tokenizer.isWordChar('\u00e0', Locale.ITALIAN));
+		assertFalse(Tokenizer.isWordChar('\'', Locale.ITALIAN));
+		assertFalse(Tokenizer.isWordChar('1', Locale.ITALIAN));
+	}
+
+	@Test
+	public void testParityEnglish() throws IOException {
+		testParity(Locale.ENGLISH);
+	}
+
+	@Test
+	public void testParityItalian() throws IOException {
+		testParity(Locale.ITALIAN);
+	}
+
+	/**
+	 * Checks that the tokenizer gives the same words as the baseline regular
+	 * expressions of {@link StopWordsTrimmer}, and as its current
+	 * normalize/tokenize/trim methods, on a sample and on random texts.
+	 */
+	private void testParity(Locale language) throws IOException {
+		String path = StopWordsTest.DATASET_DIR
+				+ StopWords.getDatasetPath(language);
+		Set<String> baselineStopWords = new HashSet<String>(
+				Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8));
+		StopWords stopWords = StopWords.load(path);
+		StopWordsTrimmer trimmer = new StopWordsTrimmer(language);
+
+		List<String> texts = new ArrayList<String>();
+		texts.add(StopWordsTest.TEXT);
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++)
+			texts.add(randomText(random, baselineStopWords));
+
+		for (String text : texts) {
+			for (boolean lowerCase : new boolean[] { false, true }) {
+				String input = lowerCase ? text.toLowerCase() : text;
+				List<String> expected = baselineTrim(
+						baselineTokenize(input, language), baselineStopWords);
+				assertEquals(text, expected, new Tokenizer(language,
+						lowerCase, stopWords).tokenize(text));
+				assertEquals(text, expected, StopWordsTrimmer.trim(
+						StopWordsTrimmer.tokenize(trimmer.normalize(input)),
+						stopWords));
+
+				List<String> all = baselineTokenize(input, language);
+				all.removeAll(Arrays.asList(""));
+				assertEquals(text, all, new Tokenizer(language, lowerCase,
+						null).tokenize(text));
+			}
+		}
+	}
+
+	private static String randomText(Random random, Set<String> stopWords) {
+		List<String> words = new ArrayList<String>(stopWords);
+		StringBuilder text = new StringBuilder();
+		int length = random.nextInt(60);
+		for (int i = 0; i < length; i++) {
+			if (random.nextInt(4) == 0) {
+				// A stop word, possibly uppercase
+				String word = words.get(random.nextInt(words.size()));
+				text.append(random.nextBoolean() ? word : word.toUpperCase());
+			} else
+				text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * The baseline {@link StopWordsTrimmer#normalize(String)} and
+	 * {@link StopWordsTrimmer#tokenize(String)}.
+	 */
+	private static List<String> baselineTokenize(String text, Locale language) {
+		String normalized;
+		if (language == Locale.ITALIAN)
+			normalized = text.replaceAll(
+					"[^A-Za-z\u00e0\u00e8\u00e9\u00ec\u00f2\u00f9 ]", " ");
+		else
+			normalized = text.replaceAll("[^A-Za-z' ]", " ");
+		return new ArrayList<String>(Arrays.asList(normalized.split(" ")));
+	}
+
+	/**
+	 * The baseline {@link StopWordsTrimmer#trim(java.util.Collection)}.
+	 */
+	private static List<String> baselineTrim(List<String> words,
+			Set<String> stopWords) {
+		List<String> okWords = new ArrayList<String>();
+		for (String word : words)
+			if (!word.equals(""))
+				if (!stopWords.contains(word.toLowerCase()))
+					okWords.add(word);
+		return okWords;
+	}
+}
@@ -0,0 +1,55 @@
+package it.unito.nlplap.semantics.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class UtilsTest {
+
+	@Test
+	public void testEqualsUtf8() {
+		String[] strings = { "", "cane", "perch\u00e9", "\u20ac10",
+				"\ud83d\ude00!" };
+		for (String string : strings) {
+			ByteBuffer buffer = encode(string);
+			for (String other : strings)
+				assertTrue(string.equals(other) == Utils.equalsUtf8(buffer, 0,
+						buffer.limit(), other, false));
+		}
+	}
+
+	@Test
+	public void testEqualsUtf8LowerCase() {
+		ByteBuffer buffer = encode("citt\u00e0");
+		assertTrue(Utils.equalsUtf8(buffer, 0, buffer.limit(),
+				"CITT\u00c0", true));
+		assertFalse(Utils.equalsUtf8(buffer, 0, buffer.limit(),
+				"CITT\u00c0", false));
+	}
+
+	@Test
+	public void testEqualsUtf8Range() {
+		ByteBuffer buffer = encode("xxcanexx");
+		assertTrue(Utils.equalsUtf8(buffer, 2, 6, "cane", false));
+		assertFalse(Utils.equalsUtf8(buffer, 2, 5, "cane", false));
+		assertFalse(Utils.equalsUtf8(buffer, 2, 7, "cane", false));
+	}
+
+	@Test
+	public void testEqualsUtf8TruncatedSequence() {
+		ByteBuffer buffer = encode("perch\u00e9");
+		// The last char is cut in the middle of its two bytes
+		assertFalse(Utils.equalsUtf8(buffer, 0, buffer.limit() - 1,
+				"perch\u00e9", false));
+		assertFalse(Utils.equalsUtf8(buffer, 0, buffer.limit() - 1, "perch",
+				false));
+	}
+
+	private static ByteBuffer encode(String string) {
+		return ByteBuffer.wrap(string.getBytes(StandardCharsets.UTF_8));
+	}
+}
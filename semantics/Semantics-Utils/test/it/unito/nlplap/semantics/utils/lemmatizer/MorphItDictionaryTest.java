@@ -0,0 +1,137 @@
+package it.unito.nlplap.semantics.utils.lemmatizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import it.unito.nlplap.semantics.utils.CorruptFiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MorphItDictionaryTest {
+
+	private static final String MORPH_IT = "cane\tcane\tNOUN-M:s\n"
+			+ "cani\tcane\tNOUN-M:p\n"
+			+ "citt\u00e0\tcitt\u00e0\tNOUN-F:s\n"
+			+ "citt\u00e0\tcitt\u00e0\tNOUN-F:p\n"
+			+ "perch\u00e9\tperch\u00e9\tCON\n"
+			+ "e\te\n"
+			+ "malformed line\n"
+			+ "partii\tpartire\tVER:ind+past+1+s\n";
+
+	private static final CorruptFiles.Loader MAP = new CorruptFiles.Loader() {
+		@Override
+		public void load(File file) throws IOException {
+			MorphItDictionary.map(file);
+		}
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MorphItDictionary dictionary;
+
+	@Before
+	public void setUp() throws IOException {
+		dictionary = MorphItDictionary.parse(new ByteArrayInputStream(MORPH_IT
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testParse() {
+		assertEquals(6, dictionary.size());
+		assertEquals(7, dictionary.getEntryCount());
+
+		int id = dictionary.getFormId("citt\u00e0");
+		assertEquals("citt\u00e0", dictionary.getForm(id));
+		assertEquals(2, dictionary.getLastEntry(id)
+				- dictionary.getFirstEntry(id));
+		int entry = dictionary.getFirstEntry(id) + 1;
+		assertEquals("citt\u00e0", dictionary.getLemma(entry));
+		assertEquals("NOUN-F", dictionary.getPos(entry));
+		assertEquals("NOUN-F:p", dictionary.getExtra(entry));
+		assertEquals(id, dictionary.getEntryForm(entry));
+
+		entry = dictionary.getFirstEntry(dictionary.getFormId("perch\u00e9"));
+		assertEquals("CON", dictionary.getPos(entry));
+		assertEquals("CON", dictionary.getExtra(entry));
+
+		// No PoS nor extra
+		entry = dictionary.getFirstEntry(dictionary.getFormId("e"));
+		assertEquals("e", dictionary.getLemma(entry));
+		assertEquals("", dictionary.getPos(entry));
+		assertNull(dictionary.getExtra(entry));
+	}
+
+	@Test
+	public void testGetFormId() {
+		assertEquals(-1, dictionary.getFormId("gatto"));
+		assertEquals(-1, dictionary.getFormId("can"));
+		assertEquals(-1, dictionary.getFormId("Cane"));
+		assertEquals(-1, dictionary.getFormId("malformed line"));
+		assertEquals(dictionary.getFormId("cane"),
+				dictionary.getFormId("Cane", true));
+		assertEquals(dictionary.getFormId("citt\u00e0"),
+				dictionary.getFormId("CITT\u00c0", true));
+	}
+
+	@Test
+	public void testGetEntryForm() {
+		for (int id = 0; id < dictionary.size(); id++)
+			for (int entry = dictionary.getFirstEntry(id); entry < dictionary
+					.getLastEntry(id); entry++)
+				assertEquals(id, dictionary.getEntryForm(entry));
+	}
+
+	@Test
+	public void testSaveAndMap() throws IOException {
+		File file = folder.newFile("morph-it.dict");
+		dictionary.save(file);
+		MorphItDictionary mapped = MorphItDictionary.map(file);
+
+		assertEquals(dictionary.size(), mapped.size());
+		assertEquals(dictionary.getEntryCount(), mapped.getEntryCount());
+		for (int id = 0; id < dictionary.size(); id++) {
+			String form = dictionary.getForm(id);
+			assertEquals(id, mapped.getFormId(form));
+			assertEquals(form, mapped.getForm(id));
+			assertEquals(dictionary.getFirstEntry(id),
+					mapped.getFirstEntry(id));
+			assertEquals(dictionary.getLastEntry(id), mapped.getLastEntry(id));
+		}
+		for (int entry = 0; entry < dictionary.getEntryCount(); entry++) {
+			assertEquals(dictionary.getLemma(entry), mapped.getLemma(entry));
+			assertEquals(dictionary.getPos(entry), mapped.getPos(entry));
+			assertEquals(dictionary.getExtra(entry), mapped.getExtra(entry));
+		}
+	}
+
+	@Test
+	public void testMapRejectsDamagedImage() throws IOException {
+		File file = folder.newFile("morph-it.dict");
+		dictionary.save(file);
+		long length = file.length();
+		CorruptFiles.assertRejectsDamaged(file, new long[] { length - 1,
+				length / 2, MorphItDictionary.HEADER_SIZE, 3 }, MAP);
+	}
+
+	@Test
+	public void testMapRejectsBadStringId() throws IOException {
+		File file = folder.newFile("morph-it.dict");
+		dictionary.save(file);
+
+		// The lemma of the first entry, after the form table, form offsets
+		// and form entries
+		int formCount = CorruptFiles.readInt(file, 8);
+		int tableSize = CorruptFiles.readInt(file, 20);
+		CorruptFiles.writeInt(file, MorphItDictionary.HEADER_SIZE + tableSize
+				* 4 + (formCount + 1) * 8, Integer.MAX_VALUE);
+		CorruptFiles.assertRejected(file, MAP);
+	}
+}
@@ -1,82 +1,96 @@
 package it.unito.nlplab.semantics.textcleaner;
 
-import it.unito.nlplap.semantics.utils.StopWordsTrimmer;
-import it.unito.nlplap.semantics.utils.lemmatizer.MorphItLemmatizer;
+import it.unito.nlplap.semantics.utils.SharedPipelines;
+import it.unito.nlplap.semantics.utils.TextProcessor;
+import it.unito.nlplap.semantics.utils.TextProcessor.StopWordsRemoval;
 
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Properties;
 
 import org.apache.commons.lang.StringUtils;
 
-import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
-import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.util.CoreMap;
 
 public class LemmatizingTextCleaner implements TextCleaner {
 
-	private Locale language;
-	private StopWordsTrimmer swt;
-	private StanfordCoreNLP pipeline;
-	private MorphItLemmatizer morphitLemmatizer;
+	private TextProcessor processor;
 
+	/**
+	 * Creates a cleaner using the Stanford pipeline shared by the whole
+	 * application (see {@link SharedPipelines}).
+	 * 
+	 * @param language
+	 * @throws FileNotFoundException
+	 */
 	public LemmatizingTextCleaner(Locale language) throws FileNotFoundException {
-		this.language = language;
-		this.swt = new StopWordsTrimmer(language);
-
-		if (language == Locale.ITALIAN) {
-			morphitLemmatizer = new MorphItLemmatizer();
-		} else {
-			// Init Stanford Pipeline
-			Properties props = new Properties();
-			props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-			this.pipeline = new StanfordCoreNLP(props);
-		}
+		this(language, language == Locale.ITALIAN ? null : SharedPipelines
+				.get(SharedPipelines.POS_ANNOTATORS));
+	}
 
+	/**
+	 * Creates a cleaner, optionally lemmatizing English words without PoS
+	 * tagging (i.e. without a Stanford pipeline), which is much faster but may
+	 * give different lemmas.
+	 * 
+	 * @param language
+	 * @param posTagging
+	 * @throws FileNotFoundException
+	 */
+	public LemmatizingTextCleaner(Locale language, boolean posTagging)
+			throws FileNotFoundException {
+		this(language, language == Locale.ITALIAN || !posTagging ? null
+				: SharedPipelines.get(SharedPipelines.POS_ANNOTATORS),
+				posTagging);
 	}
 
-	public String cleanText(String text) throws Exception {
-		// Trim stopwords
-		List<String> terms = swt.trim(StopWordsTrimmer.tokenize(swt
-				.normalize(text.toLowerCase())));
+	/**
+	 * Creates a cleaner using the given Stanford pipeline (ignored for
+	 * Italian).<br/>
+	 * The cleaner can be used by multiple threads at the same time.
+	 * 
+	 * @param language
+	 * @param pipeline
+	 *            a pipeline with at least the PoS annotator.
+	 * @throws FileNotFoundException
+	 */
+	public LemmatizingTextCleaner(Locale language, StanfordCoreNLP pipeline)
+			throws FileNotFoundException {
+		this(language, pipeline, true);
+	}
 
-		// Lemmatizing
-		if (language == Locale.ITALIAN) {
-			List<String> lemmas = new ArrayList<String>();
-			for (String term : terms) {
-				lemmas.add(morphitLemmatizer.getLemmaString(term));
-			}
-			terms = lemmas;
-		} else
-			terms = getLemmas(StringUtils.join(terms, " "));
+	/**
+	 * Creates a cleaner using the given Stanford pipeline (ignored for
+	 * Italian or without PoS tagging).<br/>
+	 * The cleaner can be used by multiple threads at the same time.
+	 * 
+	 * @param language
+	 * @param pipeline
+	 *            a pipeline with at least the PoS annotator.
+	 * @param posTagging
+	 *            false to lemmatize English words without PoS tagging.
+	 * @throws FileNotFoundException
+	 */
+	public LemmatizingTextCleaner(Locale language, StanfordCoreNLP pipeline,
+			boolean posTagging) throws FileNotFoundException {
+		// Lowercase, trim stopwords and lemmatize
+		this.processor = new TextProcessor(language, pipeline, null,
+				StopWordsRemoval.WORDS, true, false, posTagging);
+	}
 
-		return StringUtils.join(terms, " ");
+	public String cleanText(String text) throws Exception {
+		return StringUtils.join(processor.getLemmas(text), " ");
 	}
 
+	/**
+	 * Returns the lemmas of all the words in the given text, using the PoS
+	 * tagging pipeline (see {@link TextProcessor#getTaggedLemmas(String)}).
+	 * 
+	 * @param text
+	 * @return
+	 */
 	public List<String> getLemmas(String text) {
-
-		List<String> lemmas = new ArrayList<String>();
-
-		// Run the pipeline on the text 
-		Annotation document = new Annotation(text);
-		pipeline.annotate(document);
-
-		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
-
-		for (CoreMap sentence : sentences) {
-			for (CoreLabel token : sentence.get(TokensAnnotation.class)) {
-				String lemma = token.get(LemmaAnnotation.class);
-				lemmas.add(lemma);
-			}
-		}
-
-		return lemmas;
+		return processor.getTaggedLemmas(text);
 	}
 
 }
@@ -37,8 +37,7 @@ public class StemmingTextCleaner implements TextCleaner {
 
 	public String cleanText(String text) throws Exception {
 		// Trim stopwords
-		List<String> terms = swt.trim(StopWordsTrimmer.tokenize(swt
-				.normalize(text.toLowerCase())));
+		List<String> terms = swt.getTokenizer(true).tokenize(text);
 
 		// Stemming
 		List<String> stems = new ArrayList<String>();
@@ -21,8 +21,7 @@ public class StopWordOnlyTextCleaner implements TextCleaner {
 
 	public String cleanText(String text) throws Exception {
 		// Trim stopwords
-		List<String> terms = swt.trim(StopWordsTrimmer.tokenize(swt
-				.normalize(text.toLowerCase())));
+		List<String> terms = swt.getTokenizer(true).tokenize(text);
 
 		return StringUtils.join(terms, " ");
 	}
@@ -10,7 +10,7 @@ import it.uniroma1.lcl.babelnet.data.BabelPOS;
 import it.uniroma1.lcl.jlt.util.Language;
 import it.unito.nlplab.semantics.textcleaner.LemmatizingTextCleaner;
 import it.unito.nlplab.semantics.textcleaner.TextCleaner;
-import it.unito.nlplap.semantics.utils.FeatureVectorUtils;
+import it.unito.nlplap.semantics.utils.TextProcessor;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
@@ -40,6 +40,7 @@ public class ExtendedWSD {
 	private Locale language;
 	private Language babelLanguage;
 	private TextCleaner cleaner;
+	private TextProcessor processor;
 
 	/**
 	 * Holds already discovered senses (i.e. lemmatized or something) for
@@ -64,6 +65,7 @@ public class ExtendedWSD {
 			cleaner = new LemmatizingTextCleaner(language);
 		}
 		this.cleaner = cleaner;
+		this.processor = TextProcessor.getShared(language);
 
 	}
 
@@ -91,8 +93,7 @@ public class ExtendedWSD {
 
 		// Clean original word's context
 		HashSet<String> cleanContext = new HashSet<String>(
-				FeatureVectorUtils.getLemmas(cleaner.cleanText(context),
-						language));
+				processor.getLemmas(cleaner.cleanText(context)));
 
 		// Retrieve senses (and related) for current word
 		List<ExtendedSense> senses = getExtendedSenses(cleanWord, pos,
@@ -146,16 +147,16 @@ public class ExtendedWSD {
 
 		// Extract lemmas from Sense's Glosses
 		for (String gloss : sense.getGlosses()) {
-			for (String senseWord : FeatureVectorUtils.getLemmas(
-					cleaner.cleanText(gloss), language)) {
+			for (String senseWord : processor.getLemmas(
+					cleaner.cleanText(gloss))) {
 				senseWords.add(senseWord);
 			}
 		}
 
 		// Extract lemmas from Sense's Examples
 		for (String example : sense.getExamples()) {
-			for (String exampleWord : FeatureVectorUtils.getLemmas(
-					cleaner.cleanText(example), language)) {
+			for (String exampleWord : processor.getLemmas(
+					cleaner.cleanText(example))) {
 				senseWords.add(exampleWord);
 			}
 		}
@@ -163,15 +164,15 @@ public class ExtendedWSD {
 		// Extract lemmas from Related Senses
 		for (Sense rs : sense.getRelatedSenses()) {
 			for (String gloss : rs.getGlosses()) {
-				for (String senseWord : FeatureVectorUtils.getLemmas(
-						cleaner.cleanText(gloss), language)) {
+				for (String senseWord : processor.getLemmas(
+						cleaner.cleanText(gloss))) {
 					senseWords.add(senseWord);
 				}
 			}
 
 			for (String example : rs.getExamples()) {
-				for (String exampleWord : FeatureVectorUtils.getLemmas(
-						cleaner.cleanText(example), language)) {
+				for (String exampleWord : processor.getLemmas(
+						cleaner.cleanText(example))) {
 					senseWords.add(exampleWord);
 				}
 			}
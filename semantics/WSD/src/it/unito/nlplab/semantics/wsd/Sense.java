@@ -1,8 +1,12 @@
 package it.unito.nlplab.semantics.wsd;
 
+import it.unito.nlplap.semantics.utils.TermDictionary;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import edu.stanford.nlp.util.StringUtils;
 
@@ -17,7 +21,9 @@ public class Sense {
 	private String lemma;
 	private List<String> glosses = new ArrayList<String>();
 	private List<String> examples = new ArrayList<String>();
-	private HashSet<String> context = new HashSet<String>();
+	private Set<String> context = Collections.emptySet();
+	private int[] contextIds;
+	private TermDictionary contextDictionary;
 
 	public String getName() {
 		return name;
@@ -73,16 +79,42 @@ public class Sense {
 
 	/**
 	 * Get context words already cleaned (i.e. tokenized, stopwords removed,
-	 * lemmatized)
+	 * lemmatized).<br/>
+	 * The context is read-only, use {@link Sense#setContext(Set)} to change
+	 * it.
 	 * 
 	 * @return
 	 */
-	public HashSet<String> getContext() {
+	public Set<String> getContext() {
 		return context;
 	}
 
-	public void setContext(HashSet<String> context) {
-		this.context = context;
+	/**
+	 * @param context
+	 *            the context words, which are copied.
+	 */
+	public synchronized void setContext(Set<String> context) {
+		this.context = Collections.unmodifiableSet(new HashSet<String>(
+				context));
+		this.contextIds = null;
+		this.contextDictionary = null;
+	}
+
+	/**
+	 * Get the ids of the context words in the given {@link TermDictionary}
+	 * (adding them if missing), sorted (see
+	 * {@link TermDictionary#countCommon(int[], int[])}).<br/>
+	 * Ids are computed once for each context and dictionary.
+	 * 
+	 * @param dictionary
+	 * @return
+	 */
+	public synchronized int[] getContextIds(TermDictionary dictionary) {
+		if (contextIds == null || contextDictionary != dictionary) {
+			contextIds = dictionary.getIds(context, true);
+			contextDictionary = dictionary;
+		}
+		return contextIds;
 	}
 
 	/* Utilities */
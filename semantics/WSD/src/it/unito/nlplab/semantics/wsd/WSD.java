@@ -2,6 +2,7 @@ package it.unito.nlplab.semantics.wsd;
 
 import it.unito.nlplab.semantics.textcleaner.LemmatizingTextCleaner;
 import it.unito.nlplab.semantics.textcleaner.TextCleaner;
+import it.unito.nlplap.semantics.utils.TermDictionary;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
@@ -74,6 +75,13 @@ public class WSD {
 	 */
 	private ConcurrentMap<String, ConcurrentMap<String, List<Sense>>> senseCache = new ConcurrentHashMap<String, ConcurrentMap<String, List<Sense>>>();
 
+	/**
+	 * Holds the words of the cached sense contexts, so that overlaps are
+	 * computed on sorted ids. It lives as long as this instance, like the
+	 * sense cache.
+	 */
+	private final TermDictionary dictionary = new TermDictionary();
+
 	/**
 	 * 
 	 * @param language
@@ -195,11 +203,17 @@ public class WSD {
 		// Retrieve senses for current word
 		List<Sense> senses = getSenses(word, pos);
 
+		// Context words not in any sense context cannot overlap, so they are
+		// skipped once senses are in the dictionary
+		for (Sense sense : senses)
+			sense.getContextIds(dictionary);
+		int[] contextIds = dictionary.getIds(context, false);
+
 		// Find best sense (max overlap score)
 		int maxOverlap = -1;
 		Sense bestSense = null;
 		for (Sense sense : senses) {
-			int overlap = getOverlap(sense, context);
+			int overlap = getOverlap(sense, contextIds);
 
 			if (LOG.isDebugEnabled())
 				LOG.debug(String
@@ -258,16 +272,18 @@ public class WSD {
 			sense.setExamples(Arrays.asList(wn.getExamples(id)));
 
 			// Clean sense contexts
+			HashSet<String> context = new HashSet<String>();
 			for (String senseWord : RiTa.tokenize(cleaner.cleanText(sense
 					.getGloss()))) {
-				sense.getContext().add(senseWord);
+				context.add(senseWord);
 			}
 			for (String example : sense.getExamples()) {
 				for (String exampleWord : RiTa.tokenize(cleaner
 						.cleanText(example))) {
-					sense.getContext().add(exampleWord);
+					context.add(exampleWord);
 				}
 			}
+			sense.setContext(context);
 
 			// Add discovered senses to cache
 			senses.add(sense);
@@ -289,8 +305,8 @@ public class WSD {
 	public static int getOverlap(Sense sense, HashSet<String> context)
 			throws Exception {
 		int overlap = 0;
-
 		List<String> commons = new ArrayList<String>();
+
 		// Count words in common
 		for (String contextWord : context) {
 			if (sense.getContext().contains(contextWord)) {
@@ -308,4 +324,39 @@ public class WSD {
 
 		return overlap;
 	}
+
+	/**
+	 * Return the overlap score for the given Sense and context ids in the
+	 * dictionary of this instance (see
+	 * {@link TermDictionary#getIds(java.util.Collection, boolean)}).
+	 * 
+	 * @param sense
+	 * @param contextIds
+	 *            the sorted ids of the context words.
+	 * @return
+	 */
+	public int getOverlap(Sense sense, int[] contextIds) {
+		int[] senseIds = sense.getContextIds(dictionary);
+
+		// Count words in common
+		int overlap = TermDictionary.countCommon(senseIds, contextIds);
+
+		if (LOG.isDebugEnabled()) {
+			List<String> commons = new ArrayList<String>();
+			List<String> context = new ArrayList<String>();
+			for (int id : contextIds) {
+				context.add(dictionary.getTerm(id));
+				if (Arrays.binarySearch(senseIds, id) >= 0)
+					commons.add(dictionary.getTerm(id));
+			}
+
+			LOG.debug(String
+					.format("Calculating Overlap: value=%d, commonWords=[%s], context=[%s], sense=[%s]",
+							overlap, StringUtils.join(commons, ", "),
+							StringUtils.join(context, ", "),
+							StringUtils.join(sense.getContext(), ", ")));
+		}
+
+		return overlap;
+	}
 }